@@ -10,6 +10,7 @@ done
 
 CP="$CP:build/lib/commons-math3-3.6.1.jar:build/lib/xchart-3.6.0.jar"
 
-echo java -Xmx2048m -Xms512m -XX:+UseSerialGC -classpath build $class $@
+# Off-heap transposition tables (the oht tag) are limited by MaxDirectMemorySize, not by -Xmx
+echo java -Xmx2048m -Xms512m -XX:MaxDirectMemorySize=8g -XX:+UseSerialGC -classpath build $class $@
 
-java -Xmx2048m -Xms512m -XX:+UseSerialGC -classpath "lib/*:build"  $class $@
+java -Xmx2048m -Xms512m -XX:MaxDirectMemorySize=8g -XX:+UseSerialGC -classpath "lib/*:build"  $class $@
@@ -0,0 +1,11 @@
+#!/bin/sh
+# Compiles the sources and the tests, and runs every class in the test folder named *Test
+rm -rf build-test
+mkdir -p build-test
+javac -cp "lib/*" -d build-test `find src test -name "*.java"` || exit 1
+
+tests=`cd test && find . -name "*Test.java" | sed -e 's|^\./||' -e 's|\.java$||' -e 's|/|.|g'`
+for t in $tests
+do
+  java -ea -cp "lib/*:build-test" $t || exit 1
+done
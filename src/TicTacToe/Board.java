@@ -2,6 +2,7 @@ package TicTacToe;
 
 import framework.IBoard;
 import framework.MoveList;
+import framework.UndoStack;
 
 import java.util.Random;
 
@@ -18,6 +19,8 @@ public class Board implements IBoard {
     private int[][] board;
     private boolean[][] seen;
     private int size = 3;
+    // Per move: the move, the winner, the player to move and the number of moves
+    private final UndoStack undo = new UndoStack(4);
 
     public void setSize(int size) {
         this.size = size;
@@ -91,6 +94,7 @@ public class Board implements IBoard {
 
     @Override
     public void initialize() {
+        undo.clear();
         board = new int[size][size];
         winner = NONE_WIN;
         playerToMove = P1;
@@ -99,7 +103,7 @@ public class Board implements IBoard {
         // initialize the zobrist numbers
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
 
             // 64 locations, 3 states for each location = 192
             zbnums = new long[size][size][3];
@@ -133,29 +137,45 @@ public class Board implements IBoard {
     @Override
     public IBoard clone() {
         Board b = new Board();
-        b.board = new int[size][size];
-        b.size = size;
+        b.copyFrom(this);
+        return b;
+    }
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                b.board[i][j] = board[i][j];
-            }
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        if (board == null || b.size != size) {
+            size = b.size;
+            board = new int[size][size];
         }
-
-        b.winner = this.winner;
-        b.playerToMove = this.playerToMove;
-        b.zbHash = zbHash;
-        b.nMoves = nMoves;
-        return b;
+        for (int i = 0; i < size; i++)
+            System.arraycopy(b.board[i], 0, board[i], 0, size);
+
+        winner = b.winner;
+        playerToMove = b.playerToMove;
+        zbHash = b.zbHash;
+        nMoves = b.nMoves;
+        undo.clear();
     }
 
     @Override
     public void doMove(int[] move) {
-        assert board[move[0]][move[1]] == 0 : "Illegal move.";
-        board[move[0]][move[1]] = playerToMove;
+        doMove(MoveList.pack(move));
+    }
 
-        zbHash ^= zbnums[move[0]][move[1]][0]; // Hash out the empty
-        zbHash ^= zbnums[move[0]][move[1]][playerToMove]; // Hash in the player
+    @Override
+    public void doMove(int move) {
+        int x = MoveList.part(move, 0), y = MoveList.part(move, 1);
+        assert board[x][y] == 0 : "Illegal move.";
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = winner;
+        undo.data[u + 2] = playerToMove;
+        undo.data[u + 3] = nMoves;
+        board[x][y] = playerToMove;
+
+        zbHash ^= zbnums[x][y][0]; // Hash out the empty
+        zbHash ^= zbnums[x][y][playerToMove]; // Hash in the player
 
         // Switch players
         if (playerToMove == P1) {
@@ -170,6 +190,16 @@ public class Board implements IBoard {
         nMoves++;
     }
 
+    @Override
+    public void undoMove() {
+        int u = undo.pop();
+        board[MoveList.part(undo.data[u], 0)][MoveList.part(undo.data[u], 1)] = 0;
+        winner = undo.data[u + 1];
+        playerToMove = undo.data[u + 2];
+        nMoves = undo.data[u + 3];
+        zbHash = undo.getHash(u);
+    }
+
     @Override
     public double evaluate(int player) { // WARN This will only work for larger boards
         int maxMe = 0, maxOpp = 0, n = 0;
@@ -246,6 +276,11 @@ public class Board implements IBoard {
         return move[0] + (size * move[1]);
     }
 
+    @Override
+    public int getMoveId(int move) {
+        return MoveList.part(move, 0) + (size * MoveList.part(move, 1));
+    }
+
     @Override
     public int getMaxMoveId() {
         return size * size;
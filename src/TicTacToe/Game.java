@@ -44,5 +44,7 @@ public class Game {
             System.out.println("-------" + nm + "--------------");
         }
         System.out.println(":: Winner is " + b.checkWin());
+        aiPlayer1.stopPondering();
+        aiPlayer2.stopPondering();
     }
 }
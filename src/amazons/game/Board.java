@@ -3,6 +3,7 @@ package amazons.game;
 import framework.IBoard;
 import framework.MoveList;
 import framework.Options;
+import framework.UndoStack;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -13,6 +14,31 @@ public class Board implements IBoard {
     public static final int EMPTY = 0, WHITE_Q = P1, BLACK_Q = P2, ARROW = 3;
     private static final int[][] initPositions = {{58, 61, 40, 47}, {2, 5, 16, 23}};
     private static final int[] ALL_MOVE_INT = {9, -9, 7, -7, 8, -8, -1, 1};
+    // Dense move ids, only (from, to, arrow) triples along queen lines are numbered
+    private static final int[] LINE_INDEX = new int[B_SIZE * B_SIZE]; // The index of b among the squares in line with a
+    private static final int[] MOVE_OFFSET = new int[B_SIZE * B_SIZE]; // The first id of the moves from a to b
+    private static final int MAX_MOVE_ID;
+
+    static {
+        int[] nInLine = new int[B_SIZE];
+        Arrays.fill(LINE_INDEX, -1);
+        for (int a = 0; a < B_SIZE; a++) {
+            for (int b = 0; b < B_SIZE; b++) {
+                int dr = Math.abs(a / SIZE - b / SIZE), dc = Math.abs(a % SIZE - b % SIZE);
+                if (a != b && (dr == 0 || dc == 0 || dr == dc))
+                    LINE_INDEX[a * B_SIZE + b] = nInLine[a]++;
+            }
+        }
+        // Every queen move is followed by an arrow in line with its destination
+        int id = 0;
+        for (int i = 0; i < B_SIZE * B_SIZE; i++) {
+            MOVE_OFFSET[i] = id;
+            if (LINE_INDEX[i] != -1)
+                id += nInLine[i % B_SIZE];
+        }
+        MAX_MOVE_ID = id;
+    }
+
     // Zobrist stuff
     static long[][] zbnums = null;
     static long p1Hash, p2Hash;
@@ -24,6 +50,8 @@ public class Board implements IBoard {
     private long zbHash = 0;
     private int nMoves = 0, winner = NONE_WIN;
     public int currentPlayer = P1;
+    // Per move: the move and the winner
+    private final UndoStack undo = new UndoStack(2);
 
     public Board() {
         board = new int[SIZE * SIZE];
@@ -31,12 +59,13 @@ public class Board implements IBoard {
 
     @Override
     public void initialize() {
+        undo.clear();
         nMoves = 0;
         Arrays.fill(board, EMPTY);
 
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
 
             // 64 locations, 4 states for each location = 192
             zbnums = new long[SIZE * SIZE][4];
@@ -73,17 +102,24 @@ public class Board implements IBoard {
     @Override
     public Board clone() {
         Board newBoard = new Board();
-        // Copy the board data
-        System.arraycopy(board, 0, newBoard.board, 0, board.length);
-        System.arraycopy(queens[0], 0, newBoard.queens[0], 0, queens[0].length);
-        System.arraycopy(queens[1], 0, newBoard.queens[1], 0, queens[1].length);
-        newBoard.currentPlayer = currentPlayer;
-        newBoard.nMoves = nMoves;
-        newBoard.winner = winner;
-        newBoard.zbHash = zbHash;
+        newBoard.copyFrom(this);
         return newBoard;
     }
 
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        // Copy the board data
+        System.arraycopy(b.board, 0, board, 0, board.length);
+        System.arraycopy(b.queens[0], 0, queens[0], 0, queens[0].length);
+        System.arraycopy(b.queens[1], 0, queens[1], 0, queens[1].length);
+        currentPlayer = b.currentPlayer;
+        nMoves = b.nMoves;
+        winner = b.winner;
+        zbHash = b.zbHash;
+        undo.clear();
+    }
+
     @Override
     public MoveList getExpandMoves() {
         moves.clear();
@@ -106,21 +142,47 @@ public class Board implements IBoard {
         return moves;
     }
 
+    @Override
+    public void undoMove() {
+        int u = undo.pop(), move = undo.data[u];
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        currentPlayer = 3 - currentPlayer;
+        // Remove the arrow first, it can be shot at the square the queen came from
+        board[arrow] = EMPTY;
+        board[from] = board[to];
+        board[to] = EMPTY;
+        queens[currentPlayer - 1][board[from] % 10] = from;
+        winner = undo.data[u + 1];
+        zbHash = undo.getHash(u);
+        nMoves--;
+    }
+
     @Override
     public int getMoveId(int[] move) {
-        return move[0] + 64 * move[1] + 128 * move[2];
+        return MOVE_OFFSET[move[0] * B_SIZE + move[1]] + LINE_INDEX[move[1] * B_SIZE + move[2]];
+    }
+
+    @Override
+    public int getMoveId(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        return MOVE_OFFSET[from * B_SIZE + to] + LINE_INDEX[to * B_SIZE + arrow];
+    }
+
+    @Override
+    public int getMoveParts() {
+        return 3;
     }
 
     @Override
     public int getMaxMoveId() {
-        return 646465;
+        return MAX_MOVE_ID;
     }
 
     @Override
     public MoveList getPlayoutMoves(boolean heuristics) {
         moves.clear();
         int from, moveCount, shotCount;
-        int start = Options.r.nextInt(4);
+        int start = Options.rng().nextInt(4);
         int c = 0;
         while (moves.isEmpty() && c < 4) {
             // Select the location to move from, ie the queen to move
@@ -145,21 +207,30 @@ public class Board implements IBoard {
 
     @Override
     public void doMove(int[] move) {
+        doMove(MoveList.pack(move));
+    }
+
+    @Override
+    public void doMove(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = winner;
         // remove zobrist nums from hash of the squares that are changing
-        zbHash ^= zbnums[move[0]][currentPlayer];
-        zbHash ^= zbnums[move[1]][EMPTY];
-        zbHash ^= zbnums[move[2]][EMPTY];
+        zbHash ^= zbnums[from][currentPlayer];
+        zbHash ^= zbnums[to][EMPTY];
+        zbHash ^= zbnums[arrow][EMPTY];
 
-        board[move[1]] = board[move[0]];
-        board[move[0]] = EMPTY;
-        queens[currentPlayer - 1][board[move[1]] % 10] = move[1];
+        board[to] = board[from];
+        board[from] = EMPTY;
+        queens[currentPlayer - 1][board[to] % 10] = to;
         // Shoot the arrow (after moving the queen!)
-        board[move[2]] = ARROW;
+        board[arrow] = ARROW;
         //
         // remove zobrist nums from hash of the squares that are changing
-        zbHash ^= zbnums[move[0]][EMPTY];
-        zbHash ^= zbnums[move[1]][currentPlayer];
-        zbHash ^= zbnums[move[2]][ARROW];
+        zbHash ^= zbnums[from][EMPTY];
+        zbHash ^= zbnums[to][currentPlayer];
+        zbHash ^= zbnums[arrow][ARROW];
         //
         if (currentPlayer == Board.P1) {
             zbHash ^= p1Hash;
@@ -172,6 +243,37 @@ public class Board implements IBoard {
         nMoves++;
     }
 
+    @Override
+    public long hashAfter(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        return zbHash ^ zbnums[from][currentPlayer] ^ zbnums[from][EMPTY] ^ zbnums[to][EMPTY]
+                ^ zbnums[to][currentPlayer] ^ zbnums[arrow][EMPTY] ^ zbnums[arrow][ARROW] ^ p1Hash ^ p2Hash;
+    }
+
+    @Override
+    public int checkWinAfter(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        // Only the squares change, the hash and the player to move are not needed to check mobility
+        moveQueen(from, to, currentPlayer);
+        board[arrow] = ARROW;
+        int result = getWinner();
+        board[arrow] = EMPTY;
+        moveQueen(to, from, currentPlayer);
+        return result;
+    }
+
+    @Override
+    public double evaluateAfter(int move, int player) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1), arrow = MoveList.part(move, 2);
+        // The evaluation only counts the moves of the queens
+        moveQueen(from, to, currentPlayer);
+        board[arrow] = ARROW;
+        double eval = evaluate(player);
+        board[arrow] = EMPTY;
+        moveQueen(to, from, currentPlayer);
+        return eval;
+    }
+
     public int getPossibleMovesFrom(int from, int[] moves) {
         int count = 0, position;
         int col, row, direction, min, max;
@@ -234,6 +336,11 @@ public class Board implements IBoard {
 
     @Override
     public int checkWin() {
+        winner = getWinner();
+        return winner;
+    }
+
+    private int getWinner() {
         boolean[] can = {false, false};
         for (int i = P1; i <= P2; i++) {
             for (int j = 0; j < queens[i - 1].length; j++) {
@@ -244,15 +351,10 @@ public class Board implements IBoard {
                 }
             }
         }
-        if (!can[0]) {
-            winner = P2_WIN;
+        if (!can[0])
             return P2_WIN;
-        }
-        if (!can[1]) {
-            winner = P1_WIN;
+        if (!can[1])
             return P1_WIN;
-        }
-        winner = NONE_WIN;
         return NONE_WIN;
     }
 
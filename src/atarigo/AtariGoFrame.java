@@ -97,6 +97,8 @@ public class AtariGoFrame extends JFrame {
             winner = board.checkWin();
             if (winner != Board.NONE_WIN) {
                 frame.setTitle("Winner is " + board.checkWin());
+                aiPlayer1.stopPondering();
+                aiPlayer2.stopPondering();
             } else {
                 String player = board.getPlayerToMove() == 1 ? "bl" : "wh";
                 String eval = " e1: " + board.evaluate(1) + " e2 " + board.evaluate(2);
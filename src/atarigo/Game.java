@@ -31,6 +31,8 @@ public class Game {
         }
 
         System.out.println("Winner is " + b.checkWin());
+        aiPlayer1.stopPondering();
+        aiPlayer2.stopPondering();
     }
 
 }
@@ -3,7 +3,9 @@ package atarigo.game;
 import framework.IBoard;
 import framework.MoveList;
 import framework.Options;
+import framework.UndoStack;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class Board implements IBoard {
@@ -16,6 +18,11 @@ public class Board implements IBoard {
     private long zbHash = 0;
     private long[][] seen;
     private long seenI = Long.MIN_VALUE;
+    // Per move: the move, the winner, the player to move, the number of moves and the start of its liberty changes
+    private final UndoStack undo = new UndoStack(5);
+    // The liberty changes of all moves: position and previous liberty
+    private int[] libertyUndo = new int[256];
+    private int nLibertyUndo = 0;
 
     public Board(int size) {
         this.size = size;
@@ -27,6 +34,8 @@ public class Board implements IBoard {
 
     @Override
     public void initialize() {
+        undo.clear();
+        nLibertyUndo = 0;
         nMoves = 0;
         cPlayer = 1;
         winner = 0;
@@ -34,7 +43,7 @@ public class Board implements IBoard {
         // initialize the zobrist numbers
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
 
             // SIZE locations, 3 states for each location
             zbnums = new long[size * size][3];
@@ -82,6 +91,11 @@ public class Board implements IBoard {
         return move[0] + (move[1] * size);
     }
 
+    @Override
+    public int getMoveId(int move) {
+        return MoveList.part(move, 0) + (MoveList.part(move, 1) * size);
+    }
+
     @Override
     public int getMaxMoveId() {
         return size * size;
@@ -90,18 +104,30 @@ public class Board implements IBoard {
     @Override
     public IBoard clone() {
         Board newBoard = new Board(size);
-        newBoard.nMoves = nMoves;
-        newBoard.cPlayer = cPlayer;
-        newBoard.winner = winner;
-        newBoard.zbHash = zbHash;
+        newBoard.copyFrom(this);
+        return newBoard;
+    }
+
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        if (b.size != size) {
+            size = b.size;
+            board = new int[size][size];
+            liberty = new int[size][size];
+            seen = new long[size][size];
+        }
+        nMoves = b.nMoves;
+        cPlayer = b.cPlayer;
+        winner = b.winner;
+        zbHash = b.zbHash;
 
         for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                newBoard.board[j][i] = board[j][i];
-                newBoard.liberty[j][i] = liberty[j][i];
-            }
+            System.arraycopy(b.board[i], 0, board[i], 0, size);
+            System.arraycopy(b.liberty[i], 0, liberty[i], 0, size);
         }
-        return newBoard;
+        undo.clear();
+        nLibertyUndo = 0;
     }
 
     @Override
@@ -142,16 +168,27 @@ public class Board implements IBoard {
 
     @Override
     public void doMove(int[] move) {
+        doMove(MoveList.pack(move));
+    }
+
+    @Override
+    public void doMove(int move) {
         assert winner == NONE_WIN : "Game already decided";
 
         if (winner != NONE_WIN)
             return;
 
-        int pos = (move[1] * size) + move[0];
+        int x = MoveList.part(move, 0), y = MoveList.part(move, 1), opp = 3 - cPlayer;
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = winner;
+        undo.data[u + 2] = cPlayer;
+        undo.data[u + 3] = nMoves;
+        undo.data[u + 4] = nLibertyUndo;
+        int pos = (y * size) + x;
         zbHash ^= zbnums[pos][0];
-        board[move[1]][move[0]] = cPlayer;
+        board[y][x] = cPlayer;
         seenI++;
-        int x = move[0], y = move[1], opp = 3 - cPlayer;
 
         int lib = updateOppLiberty(x, y, opp, size * size);
         if (lib == 0) {
@@ -172,9 +209,37 @@ public class Board implements IBoard {
         nMoves++;
     }
 
+    @Override
+    public void undoMove() {
+        int u = undo.pop();
+        board[MoveList.part(undo.data[u], 1)][MoveList.part(undo.data[u], 0)] = 0;
+        winner = undo.data[u + 1];
+        cPlayer = undo.data[u + 2];
+        nMoves = undo.data[u + 3];
+        // Restore the liberties in reverse order
+        int start = undo.data[u + 4];
+        while (nLibertyUndo > start) {
+            nLibertyUndo -= 2;
+            int pos = libertyUndo[nLibertyUndo];
+            liberty[pos / size][pos % size] = libertyUndo[nLibertyUndo + 1];
+        }
+        zbHash = undo.getHash(u);
+    }
+
+    /**
+     * Sets the liberty of a position, and remembers its previous value for undoMove
+     */
+    private void setLiberty(int x, int y, int value) {
+        if (nLibertyUndo == libertyUndo.length)
+            libertyUndo = Arrays.copyOf(libertyUndo, 2 * libertyUndo.length);
+        libertyUndo[nLibertyUndo++] = y * size + x;
+        libertyUndo[nLibertyUndo++] = liberty[y][x];
+        liberty[y][x] = value;
+    }
+
     private int updateOppLiberty(int x, int y, int color, int min) {
         if (board[y][x] == color) {
-            liberty[y][x]--;
+            setLiberty(x, y, liberty[y][x] - 1);
             seen[y][x] = seenI;
             min = Math.min(min, liberty[y][x]);
         }
@@ -192,7 +257,7 @@ public class Board implements IBoard {
     }
 
     private void updateMyLiberty(int x, int y, int liberty, int color) {
-        this.liberty[y][x] = liberty;
+        setLiberty(x, y, liberty);
         seen[y][x]--; // reduce my seenindex so I don't get visited twice. Because in this method we're updating all positions belonging to the group with seenI
         if (x + 1 < size && seen[y][x + 1] == seenI && board[y][x + 1] == color) {
             updateMyLiberty(x + 1, y, liberty, color);
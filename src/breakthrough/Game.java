@@ -32,6 +32,8 @@ public class Game {
             System.out.println(":: Evaluation P1: " + b.evaluate(1) + " P2: " + b.evaluate(2));
         }
         System.out.println(":: Winner is " + b.checkWin());
+        aiPlayer1.stopPondering();
+        aiPlayer2.stopPondering();
     }
 
 }
@@ -3,6 +3,7 @@ package breakthrough.game;
 import framework.IBoard;
 import framework.MoveList;
 import framework.Options;
+import framework.UndoStack;
 
 import java.util.Random;
 
@@ -30,8 +31,11 @@ public class Board implements IBoard {
             decisive = new MoveList(32), antiDecisive = new MoveList(32);
     private int nPieces1, progress1, lorentzPV1, nPieces2, progress2, lorentzPV2;
     private long zbHash = 0;
+    // Per move: the move, the captured piece, progress and piece values of both players, and the winner
+    private final UndoStack undo = new UndoStack(7);
 
     public void initialize() {
+        undo.clear();
         board = new int[64];
         pieces = new int[2][PIECES];
         playerToMove = P1;
@@ -60,7 +64,7 @@ public class Board implements IBoard {
         // initialize the zobrist numbers
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
 
             // 64 locations, 3 states for each location = 192
             zbnums = new long[8 * 8][3];
@@ -83,7 +87,20 @@ public class Board implements IBoard {
     }
 
     public void doMove(int[] move) {
-        int from = move[0], to = move[1];
+        doMove(MoveList.pack(move));
+    }
+
+    @Override
+    public void doMove(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1);
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = board[to];
+        undo.data[u + 2] = progress1;
+        undo.data[u + 3] = progress2;
+        undo.data[u + 4] = lorentzPV1;
+        undo.data[u + 5] = lorentzPV2;
+        undo.data[u + 6] = winner;
 
         zbHash ^= zbnums[from][playerToMove];
 
@@ -157,6 +174,50 @@ public class Board implements IBoard {
         }
     }
 
+    @Override
+    public long hashAfter(int move) {
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1);
+        // The square moved to holds either nothing or a piece of the opponent
+        return zbHash ^ zbnums[from][playerToMove] ^ zbnums[from][0] ^ zbnums[to][board[to] / 100]
+                ^ zbnums[to][playerToMove] ^ whiteHash ^ blackHash;
+    }
+
+    @Override
+    public int checkWinAfter(int move) {
+        int to = MoveList.part(move, 1), rp = to / 8;
+        boolean capture = board[to] != 0;
+        if (playerToMove == 1 && (rp == 0 || (capture && nPieces2 == 1))) return 1;
+        if (playerToMove == 2 && (rp == (8 - 1) || (capture && nPieces1 == 1))) return 2;
+        return winner;
+    }
+
+    @Override
+    public void undoMove() {
+        int u = undo.pop();
+        int from = MoveList.part(undo.data[u], 0), to = MoveList.part(undo.data[u], 1), captured = undo.data[u + 1];
+        playerToMove = (short) (3 - playerToMove);
+        // Move the piece back, and put back the captured piece
+        board[from] = board[to];
+        pieces[playerToMove - 1][board[from] % 100] = from;
+        board[to] = captured;
+        if (captured != 0) {
+            if (playerToMove == 1) {
+                nPieces2++;
+                pieces[1][captured % 100] = to;
+            } else {
+                nPieces1++;
+                pieces[0][captured % 100] = to;
+            }
+        }
+        progress1 = undo.data[u + 2];
+        progress2 = undo.data[u + 3];
+        lorentzPV1 = undo.data[u + 4];
+        lorentzPV2 = undo.data[u + 5];
+        winner = (short) undo.data[u + 6];
+        zbHash = undo.getHash(u);
+        nMoves--;
+    }
+
     @Override
     public MoveList getExpandMoves() {
         moveList.clear();
@@ -172,33 +233,41 @@ public class Board implements IBoard {
 
     @Override
     public int getMoveId(int[] move) {
-        return (move[0] * 64 + move[1]);
+        return getMoveId(MoveList.pack(move));
+    }
+
+    @Override
+    public int getMoveId(int move) {
+        // Pieces move one row forward or back, and at most one column sideways: 6 move shapes per square
+        int from = MoveList.part(move, 0), to = MoveList.part(move, 1);
+        int forward = (to > from) ? 3 : 0;
+        return from * 6 + forward + (to % 8 - from % 8 + 1);
     }
 
     @Override
     public int getMaxMoveId() {
-        return 4095;
+        return 64 * 6;
     }
 
     @Override
     public MoveList getPlayoutMoves(boolean heuristics) {
         // Check for decisive / anti-decisive moves
-        if (heuristics && ((progress1 > 3 || progress2 > 3) || Options.r.nextDouble() > .95)) {
+        if (heuristics && ((progress1 > 3 || progress2 > 3) || Options.rng().nextDouble() > .95)) {
             captures.clear();
             getExpandMoves();
             if (progress1 >= 6 || progress2 >= 6) {
                 decisive.clear();
                 antiDecisive.clear();
                 for (int i = 0; i < moveList.size(); i++) {
-                    int[] move = moveList.get(i);
+                    int from = moveList.get(i, 0), to = moveList.get(i, 1);
                     // Decisive / anti-decisive moves
-                    if (playerToMove == 1 && (move[1] / 8 == 0))
-                        decisive.add(move[0], move[1]);
-                    else if (playerToMove == 2 && (move[1] / 8 == 7))
-                        decisive.add(move[0], move[1]);
-                    else if (decisive.isEmpty() && (board[move[1]] != 0 &&
-                            (move[0] / 8 == 7 || move[0] / 8 == 0)))
-                        antiDecisive.add(move[0], move[1]);
+                    if (playerToMove == 1 && (to / 8 == 0))
+                        decisive.add(from, to);
+                    else if (playerToMove == 2 && (to / 8 == 7))
+                        decisive.add(from, to);
+                    else if (decisive.isEmpty() && (board[to] != 0 &&
+                            (from / 8 == 7 || from / 8 == 0)))
+                        antiDecisive.add(from, to);
                 }
                 if (decisive.size() > 0)
                     return decisive;
@@ -213,7 +282,7 @@ public class Board implements IBoard {
         moveList.clear();
         int N = pieces[playerToMove - 1].length, S, nPieces = 2;
         for (int j = 0; j < nPieces; j++) {
-            S = Options.r.nextInt(PIECES);
+            S = Options.rng().nextInt(PIECES);
             for (int i = S; i < N + S; i++) {
                 if (pieces[playerToMove - 1][i % N] != CAPTURED) {
                     generateMovesForPiece(pieces[playerToMove - 1][i % N], (playerToMove == 1) ? -1 : 1, null, heuristics);
@@ -370,33 +439,33 @@ public class Board implements IBoard {
     @Override
     public Board clone() {
         Board b = new Board();
-        b.board = new int[64];
-        // Only copy the actual pieces on the board, instead of the full board
-        int piece;
-        for (int i = 0; i < 2; i++) {
-            for (int j = 0; j < PIECES; j++) {
-                piece = pieces[i][j];
-                if (piece == CAPTURED)
-                    continue;
-                b.board[piece] = board[piece];
-            }
-        }
-        b.pieces = new int[2][PIECES];
-        System.arraycopy(pieces[0], 0, b.pieces[0], 0, 16);
-        System.arraycopy(pieces[1], 0, b.pieces[1], 0, 16);
-        b.nPieces1 = this.nPieces1;
-        b.nPieces2 = this.nPieces2;
-        b.nMoves = this.nMoves;
-        b.winner = this.winner;
-        b.progress1 = this.progress1;
-        b.progress2 = this.progress2;
-        b.lorentzPV1 = this.lorentzPV1;
-        b.lorentzPV1 = this.lorentzPV2;
-        b.playerToMove = this.playerToMove;
-        b.zbHash = zbHash;
+        b.copyFrom(this);
         return b;
     }
 
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        if (board == null) {
+            board = new int[64];
+            pieces = new int[2][PIECES];
+        }
+        System.arraycopy(b.board, 0, board, 0, 64);
+        System.arraycopy(b.pieces[0], 0, pieces[0], 0, PIECES);
+        System.arraycopy(b.pieces[1], 0, pieces[1], 0, PIECES);
+        nPieces1 = b.nPieces1;
+        nPieces2 = b.nPieces2;
+        nMoves = b.nMoves;
+        winner = b.winner;
+        progress1 = b.progress1;
+        progress2 = b.progress2;
+        lorentzPV1 = b.lorentzPV1;
+        lorentzPV2 = b.lorentzPV2;
+        playerToMove = b.playerToMove;
+        zbHash = b.zbHash;
+        undo.clear();
+    }
+
     private boolean isSafe(int position, int from, int player) {
         int rp = position / 8, cp = position % 8, rpp, cpp, pos, occ;
         // count immediate attackers and defenders
@@ -140,10 +140,14 @@ public class BreakthroughPanel extends JPanel implements MouseListener, MouseMot
             frame.setTitle("Breakthrough - Black wins");
             board = new Board();
             board.initialize();
+            aiPlayer1.newGame();
+            aiPlayer2.newGame();
         } else if (winner == Board.P1_WIN) {
             frame.setTitle("Breakthrough - White wins.");
             board = new Board();
             board.initialize();
+            aiPlayer1.newGame();
+            aiPlayer2.newGame();
         }
 
         int boardPos = boardRow * 8 + boardCol;
@@ -220,6 +224,10 @@ public class BreakthroughPanel extends JPanel implements MouseListener, MouseMot
         board.doMove(move);
         //
         winner = board.checkWin();
+        if (winner != Board.NONE_WIN) {
+            aiPlayer1.stopPondering();
+            aiPlayer2.stopPondering();
+        }
         if (winner == Board.P2_WIN) {
             frame.setTitle("Breakthrough - Black wins");
             return;
@@ -6,6 +6,9 @@ import framework.IBoard;
 import framework.Options;
 import mcts.uct.UCTPlayer;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /**
  * Runs a single experiment. Options are sent by command-line.
  */
@@ -17,7 +20,7 @@ public class SimGame {
     private int[] timeLimit;
     private long seed;
     private boolean printBoard, mctsDebug;
-    private String game = "";
+    private String game = "", ttLoad = null, ttSave = null;
     private IBoard board;
 
     public SimGame() {
@@ -53,12 +56,20 @@ public class SimGame {
             } else if (args[i].equals("--seed")) {
                 i++;
                 seed = Long.parseLong(args[i]);
-                Options.r.setSeed(seed);
+                Options.setSeed(seed);
             } else if (args[i].equals("--printboard")) {
                 printBoard = true;
             } else if (args[i].equals("--game")) {
                 i++;
                 game = args[i];
+            } else if (args[i].equals("--ttload")) {
+                // Player 1 starts from this transposition table, the opponent is not changed
+                i++;
+                ttLoad = args[i];
+            } else if (args[i].equals("--ttsave")) {
+                // Player 1 saves its transposition table after the game
+                i++;
+                ttSave = args[i];
             } else {
                 throw new RuntimeException("Unknown option: " + args[i]);
             }
@@ -74,6 +85,8 @@ public class SimGame {
         Options.debug = mctsDebug; // false by default
         options.nSimulations = timeLimit[player - 1];
         options.heuristics = true;
+        if (player == 1)
+            options.ttFile = ttLoad;
 
         if (parts[0].equals("uct")) {
             playerRef = new UCTPlayer();
@@ -99,6 +112,16 @@ public class SimGame {
                 options.nSamples = Double.parseDouble(tag.substring(2));
             }else if (tag.startsWith("ns")) {
                 options.nSimulations = Integer.parseInt(tag.substring(1));
+            } else if (tag.equals("it")) {
+                options.iterative = true;
+            } else if (tag.startsWith("np")) {
+                options.nodePool = true;
+                if (tag.length() > 2)
+                    options.poolCapacity = Integer.parseInt(tag.substring(2));
+            } else if (tag.startsWith("gt")) {
+                options.gameTime = Integer.parseInt(tag.substring(2));
+            } else if (tag.startsWith("em")) {
+                options.expectedMoves = Integer.parseInt(tag.substring(2));
             } else if (tag.equals("fx")) {
                 options.fixedSimulations = true;
             } else if (tag.startsWith("c")) {
@@ -134,8 +157,37 @@ public class SimGame {
                 options.RAVE = true;
                 if (tag.length() > 1)
                     options.k = Integer.parseInt(tag.substring(1));
+            } else if (tag.equals("tr")) {
+                options.reuseTree = true;
+            } else if (tag.startsWith("pd")) {
+                options.ponder = true;
+                if (tag.length() > 2)
+                    options.ponderSimulations = Integer.parseInt(tag.substring(2));
             } else if (tag.startsWith("tto")) {
                 options.trans_offset = Integer.parseInt(tag.substring(3));
+            } else if (tag.startsWith("ott")) {
+                options.openTT = true;
+                if (tag.length() > 3)
+                    options.ttSize = Integer.parseInt(tag.substring(3));
+            } else if (tag.startsWith("ttm")) {
+                options.openTT = true;
+                options.ttBytes = Long.parseLong(tag.substring(3)) << 20;
+            } else if (tag.startsWith("oht")) {
+                options.openTT = true;
+                options.offHeapTT = true;
+                if (tag.length() > 3)
+                    options.ttSize = Integer.parseInt(tag.substring(3));
+                // Parallel search
+            } else if (tag.startsWith("rp")) {
+                options.nThreads = Integer.parseInt(tag.substring(2));
+            } else if (tag.startsWith("tp")) {
+                options.treeParallel = true;
+                options.nThreads = Integer.parseInt(tag.substring(2));
+            } else if (tag.startsWith("lp")) {
+                options.leafParallel = true;
+                options.nThreads = Integer.parseInt(tag.substring(2));
+            } else if (tag.startsWith("vl")) {
+                options.virtualLoss = Double.parseDouble(tag.substring(2));
             } else {
                 throw new RuntimeException("Unrecognized tag: " + tag);
             }
@@ -188,6 +240,15 @@ public class SimGame {
         }
         // Do not change the format of this line. Used by results aggregator scripts/parseres.perl
         System.out.println("Game over. Winner is " + board.checkWin());
+        player1.stopPondering();
+        player2.stopPondering();
+        if (ttSave != null && player1 instanceof UCTPlayer) {
+            try {
+                ((UCTPlayer) player1).saveTransposTable(Paths.get(ttSave));
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot save transposition table " + ttSave, e);
+            }
+        }
     }
 }
 
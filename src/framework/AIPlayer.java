@@ -10,5 +10,17 @@ public interface AIPlayer extends Runnable {
     void setMoveCallback(MoveCallback moveCallback);
 
     void setBoard(IBoard board);
+
+    /**
+     * Stops searching on the opponent's time, call when the game is over
+     */
+    default void stopPondering() {
+    }
+
+    /**
+     * Forgets the previous game, call before the first move of a new game with the same player
+     */
+    default void newGame() {
+    }
 }
 
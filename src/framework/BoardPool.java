@@ -0,0 +1,43 @@
+package framework;
+
+import java.util.Arrays;
+
+/**
+ * Scratch boards of the current thread. Instead of cloning, a board is copied into a board that was used before, see
+ * IBoard.copyFrom. Boards are taken with copy() and given back in reverse order with release().
+ */
+public final class BoardPool {
+    private static final ThreadLocal<BoardPool> pools = ThreadLocal.withInitial(BoardPool::new);
+    private IBoard[] boards = new IBoard[4];
+    private int size;
+
+    private BoardPool() {
+    }
+
+    /**
+     * @return A scratch board of the current thread holding a copy of board, give it back with release()
+     */
+    public static IBoard copy(IBoard board) {
+        BoardPool pool = pools.get();
+        if (pool.size == pool.boards.length)
+            pool.boards = Arrays.copyOf(pool.boards, 2 * pool.size);
+        IBoard copy = pool.boards[pool.size];
+        // The thread may have been used for another game
+        if (copy == null || copy.getClass() != board.getClass()) {
+            copy = board.clone();
+            pool.boards[pool.size] = copy;
+        } else
+            copy.copyFrom(board);
+        pool.size++;
+        return copy;
+    }
+
+    /**
+     * Gives back the last board taken with copy() on the current thread
+     */
+    public static void release(IBoard board) {
+        BoardPool pool = pools.get();
+        assert pool.size > 0 && pool.boards[pool.size - 1] == board : "Boards must be released in reverse order";
+        pool.size--;
+    }
+}
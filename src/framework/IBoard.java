@@ -6,6 +6,11 @@ public interface IBoard {
      */
     int NONE_WIN = 0, P1_WIN = 1, P2_WIN = 2, DRAW = 100;
     int P1 = 1, P2 = 2;
+    /**
+     * Zobrist numbers are drawn from a fixed seed, so a position has the same hash in every run and stored
+     * transposition tables stay valid
+     */
+    long ZOBRIST_SEED = 0x2545F4914F6CDD1DL;
 
     String getMoveString(int[] move);
 
@@ -35,8 +40,21 @@ public interface IBoard {
 
     IBoard clone();
 
+    /**
+     * Copies the position of another board of the same game into this board, reusing its arrays. Like a clone, the
+     * board starts with an empty history.
+     */
+    void copyFrom(IBoard board);
+
     void doMove(int[] move);
 
+    /**
+     * Makes a move packed in a single int, see MoveList.pack. Boards override this to avoid allocating a move array.
+     */
+    default void doMove(int move) {
+        doMove(MoveList.unpack(move, getMoveParts()));
+    }
+
     double evaluate(int player);
 
     MoveList getPlayoutMoves(boolean heuristics);
@@ -45,6 +63,53 @@ public interface IBoard {
 
     int getMoveId(int[] move);
 
+    /**
+     * Takes back the last move made with doMove on this board. Clones start with an empty history.
+     */
+    void undoMove();
+
+    /**
+     * The hash of the board after a packed move, without changing the board. Boards override this to compute the hash
+     * directly, by default the move is made and taken back.
+     */
+    default long hashAfter(int move) {
+        doMove(move);
+        long hash = hash();
+        undoMove();
+        return hash;
+    }
+
+    /**
+     * The result of checkWin() after a packed move, without changing the board.
+     */
+    default int checkWinAfter(int move) {
+        doMove(move);
+        int winner = checkWin();
+        undoMove();
+        return winner;
+    }
+
+    /**
+     * The result of evaluate(player) after a packed move, without changing the board.
+     */
+    default double evaluateAfter(int move, int player) {
+        doMove(move);
+        double eval = evaluate(player);
+        undoMove();
+        return eval;
+    }
+
+    default int getMoveId(int move) {
+        return getMoveId(MoveList.unpack(move, getMoveParts()));
+    }
+
+    /**
+     * @return The number of parts of a move
+     */
+    default int getMoveParts() {
+        return 2;
+    }
+
     int getMaxMoveId();
 
     default void startPlayout() {
@@ -0,0 +1,71 @@
+package framework;
+
+import java.util.Arrays;
+
+/**
+ * MAST statistics of both players. Move ids can be sparse, so they are mapped onto a compact index in the order they
+ * are first seen. The value and visits of both players for a move are stored next to each other.
+ */
+class MASTTable {
+    private static final int NONE = -1;
+    final int maxId;
+    private final int[] index; // Move id -> compact index
+    private int[] ids; // Compact index -> move id
+    private volatile double[] stats; // Per compact index: value p1, visits p1, value p2, visits p2
+    private int size;
+
+    MASTTable(int maxId) {
+        this.maxId = maxId;
+        index = new int[maxId];
+        Arrays.fill(index, NONE);
+        ids = new int[256];
+        stats = new double[4 * ids.length];
+    }
+
+    /**
+     * Removes all statistics, only the moves that were seen are touched
+     */
+    void clear() {
+        for (int i = 0; i < size; i++)
+            index[ids[i]] = NONE;
+        Arrays.fill(stats, 0, 4 * size, 0);
+        size = 0;
+    }
+
+    double getValue(int player, int moveId) {
+        int i = index[moveId];
+        double[] stats = this.stats;
+        // Readers on other threads may see an index before the grown table
+        if (i == NONE || 4 * i >= stats.length)
+            return Double.NaN;
+        int s = 4 * i + 2 * (player - 1);
+        return stats[s] / stats[s + 1];
+    }
+
+    double getVisits(int player, int moveId) {
+        int i = index[moveId];
+        double[] stats = this.stats;
+        if (i == NONE || 4 * i >= stats.length)
+            return 0;
+        return stats[4 * i + 2 * (player - 1) + 1];
+    }
+
+    void update(int player, int moveId, double value) {
+        int i = index[moveId];
+        if (i == NONE)
+            i = add(moveId);
+        int s = 4 * i + 2 * (player - 1);
+        stats[s] += value;
+        stats[s + 1]++;
+    }
+
+    private int add(int moveId) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * size);
+            stats = Arrays.copyOf(stats, 4 * ids.length);
+        }
+        ids[size] = moveId;
+        index[moveId] = size;
+        return size++;
+    }
+}
@@ -2,45 +2,102 @@ package framework;
 
 import java.util.Arrays;
 
+/**
+ * A list of moves, stored in a single flat array with a fixed number of parts per move. Use get(index, part),
+ * get(index, move) or getPacked(index) to read moves without allocating.
+ * <p>
+ * A packed move holds all parts of a move in a single int, 8 bits per part, the first part in the lowest bits.
+ */
 public class MoveList {
-    private int[][] moves;
+    public static final int PART_BITS = 8, PART_MASK = (1 << PART_BITS) - 1;
+    private final int parts;
+    private int[] moves;
     private int size;
 
     public MoveList(int maxSize) {
-        moves = new int[maxSize][2];
-        size = 0;
+        this(maxSize, 2);
     }
 
     public MoveList(int maxSize, int maxParts) {
-        moves = new int[maxSize][maxParts];
+        parts = maxParts;
+        moves = new int[maxSize * maxParts];
         size = 0;
     }
 
     public void add(int... move) {
-        assert moves.length > size() : "Increasing movelist size";
-
-        if (moves.length <= size()) {
-            int[][] movesNew = new int[size * 2][];
-            for (int i = 0; i < moves.length; i++) {
-                movesNew[i] = new int[moves[i].length];
-                for (int j = 0; j < move.length; j++) {
-                    movesNew[i][j] = moves[i][j];
-                }
-            }
-            moves = movesNew;
-        }
-        if (moves[size] == null)
-            moves[size] = new int[move.length];
+        assert move.length <= parts : "Move has too many parts";
+        int offset = reserve();
+        System.arraycopy(move, 0, moves, offset, move.length);
+    }
 
-        for (int i = 0; i < move.length; i++) {
-            moves[size][i] = move[i];
-        }
+    public void add(int part0, int part1) {
+        int offset = reserve();
+        moves[offset] = part0;
+        moves[offset + 1] = part1;
+    }
 
+    public void add(int part0, int part1, int part2) {
+        int offset = reserve();
+        moves[offset] = part0;
+        moves[offset + 1] = part1;
+        moves[offset + 2] = part2;
+    }
+
+    /**
+     * Makes room for one more move, and clears its parts
+     *
+     * @return the offset of the new move in the array
+     */
+    private int reserve() {
+        int offset = size * parts;
+        if (offset + parts > moves.length)
+            moves = Arrays.copyOf(moves, Math.max(2 * moves.length, offset + parts));
+        else
+            Arrays.fill(moves, offset, offset + parts, 0);
         size++;
+        return offset;
     }
 
+    /**
+     * @return A copy of the move at index
+     */
     public int[] get(int index) {
-        return Arrays.copyOf(moves[index], moves[index].length);
+        int offset = index * parts;
+        return Arrays.copyOfRange(moves, offset, offset + parts);
+    }
+
+    /**
+     * Copies the move at index into the given array, which must hold getParts() values
+     *
+     * @return the given array
+     */
+    public int[] get(int index, int[] move) {
+        System.arraycopy(moves, index * parts, move, 0, parts);
+        return move;
+    }
+
+    /**
+     * @return A single part of the move at index
+     */
+    public int get(int index, int part) {
+        return moves[index * parts + part];
+    }
+
+    /**
+     * @return The move at index, packed in a single int
+     */
+    public int getPacked(int index) {
+        int offset = index * parts, packed = 0;
+        for (int i = parts - 1; i >= 0; i--)
+            packed = (packed << PART_BITS) | moves[offset + i];
+        return packed;
+    }
+
+    /**
+     * @return The number of parts of every move in the list
+     */
+    public int getParts() {
+        return parts;
     }
 
     public int size() {
@@ -55,7 +112,33 @@ public class MoveList {
         size = 0;
     }
 
+    public static int pack(int[] move) {
+        int packed = 0;
+        for (int i = move.length - 1; i >= 0; i--) {
+            assert move[i] >= 0 && move[i] <= PART_MASK : "Move part does not fit in a packed move";
+            packed = (packed << PART_BITS) | move[i];
+        }
+        return packed;
+    }
+
+    public static int part(int move, int part) {
+        return (move >>> (part * PART_BITS)) & PART_MASK;
+    }
+
+    public static int[] unpack(int move, int parts) {
+        int[] unpacked = new int[parts];
+        for (int i = 0; i < parts; i++)
+            unpacked[i] = part(move, i);
+        return unpacked;
+    }
+
+    /**
+     * @return A copy of all moves in the list
+     */
     public int[][] getArray() {
-        return moves;
+        int[][] array = new int[size][];
+        for (int i = 0; i < size; i++)
+            array[i] = get(i);
+        return array;
     }
 }
@@ -1,11 +1,13 @@
 package framework;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
 
-public class Options {
-    public static final Random r = new Random();
+public class Options implements Cloneable {
+    // Random streams, every thread draws from its own stream, split from the seed
+    private static SplittableRandom seedRandom = new SplittableRandom();
+    private static final ThreadLocal<SplittableRandom> random = ThreadLocal.withInitial(Options::splitRandom);
     public static boolean debug = false;
     //
     public static double maxEval, minEval;
@@ -15,12 +17,32 @@ public class Options {
     public double c = 0.8; // The UCT constant
     public boolean fixedSimulations = false; // Whether to do a timed run or a run limited by a number of simulations
     public int nSimulations = 10000; // The number of UCT simulations per turn
+    public int gameTime = 0; // Total time in ms for all moves of a game, 0 = nSimulations ms for every move
+    public int expectedMoves = 40; // The expected number of moves per player in a game, to divide the gameTime
     public boolean heuristics = true; // Whether to use improved heuristics in playouts
+    public boolean iterative = false; // Whether to descend the tree in a loop, instead of recursively
+    public boolean nodePool = false; // Whether to store the tree in preallocated arrays, instead of UCTNode objects
+    public int poolCapacity = 2000000; // The maximum number of nodes in the pool
     // Parameters for resampling interesting paths
     public boolean resample = false;
     public double resampleSteps = 1.; // Increase rate for interesting moves
     // How many moves should positions remain in the transposition table?
     public int trans_offset = 0;
+    public boolean openTT = false; // Whether to store transpositions in primitive arrays, see OpenTransposTable
+    public int ttSize = 1 << 20; // The number of positions in the primitive transposition table
+    public long ttBytes = 0; // The memory budget of the primitive transposition table, implies openTT, 0 = use ttSize
+    public String ttFile = null; // A saved transposition table to start from, loaded into the primitive table, implies openTT
+    public boolean offHeapTT = false; // Whether to store the primitive table outside the heap, see -XX:MaxDirectMemorySize
+    public boolean reuseTree = false; // Whether to keep the subtree of the current position between moves
+    public boolean ponder = false; // Whether to keep searching on the opponent's time, implies reuseTree
+    public int ponderSimulations = 1000000; // The maximum number of playouts on the opponent's time per move
+    public int snapshotInterval = 1000; // Publish a snapshot of the search every snapshotInterval playouts, 0 = never
+    // Parallel search
+    public int nThreads = 1; // Number of search threads, each searches its own tree (root parallelisation)
+    public boolean treeParallel = false; // Whether the threads search a single shared tree instead (tree parallelisation)
+    public double virtualLoss = 1.; // The loss added to a node for every thread currently searching below it
+    public boolean leafParallel = false; // Whether to play out the nSamples of a leaf on the threads (leaf parallelisation)
+    public ExecutorService samplePool; // The threads for leaf parallelisation, set by the player
 
     // Parameters for early playout termination
     public boolean earlyTerm = false; // Whether to terminate playouts before the end of the game and return a value
@@ -41,71 +63,168 @@ public class Options {
     //
     public boolean RAVE = false;
     public double k = 100;
-    public int[][] RAVEMoves;
+    // The moves played in the current simulation, per player and move id: the generation in the high, the depth in the
+    // low 32 bits. Entries of an older generation are not played, so the table is cleared by increasing the generation
+    private long[][] RAVEMoves;
+    private int RAVEGeneration;
     //
     public boolean MAST = false;
     public double epsilon = .05;
     public long[] totalHistVis = {0, 0};
-    private double[][] histVal;
-    private int[][] histVis;
-    private List<Integer>[] moveLists;
+    private MASTTable MASTStats;
+    private int[][] MASTMoves; // The moves of both players in the current simulation
+    private int[] nMASTMoves;
 
+    /**
+     * @return The random stream of the calling thread
+     */
+    public static SplittableRandom rng() {
+        return random.get();
+    }
+
+    /**
+     * Sets the random stream of the calling thread, used to give every search thread a reproducible stream
+     */
+    public static void setRng(SplittableRandom rng) {
+        random.set(rng);
+    }
+
+    /**
+     * @return A new independent random stream, split from the seed
+     */
+    public static synchronized SplittableRandom splitRandom() {
+        return seedRandom.split();
+    }
+
+    /**
+     * Reseeds all random streams created from now on, and the stream of the calling thread
+     */
+    public static synchronized void setSeed(long seed) {
+        seedRandom = new SplittableRandom(seed);
+        random.set(seedRandom.split());
+    }
+
+    /**
+     * Copies the experimental settings, but not the RAVE/MAST scratch data. Used to give every search thread its own
+     * set of tables.
+     */
+    public Options copy() {
+        try {
+            Options copy = (Options) super.clone();
+            copy.RAVEMoves = null;
+            copy.MASTStats = null;
+            copy.MASTMoves = null;
+            copy.nMASTMoves = null;
+            copy.totalHistVis = new long[]{0, 0};
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Copy for playing out a sample on another thread. It shares the RAVE and MAST tables with these options, but keeps
+     * its own list of MAST moves.
+     */
+    public Options sampleCopy() {
+        Options copy = copy();
+        copy.RAVEMoves = RAVEMoves;
+        copy.RAVEGeneration = RAVEGeneration;
+        copy.MASTStats = MASTStats;
+        copy.totalHistVis = totalHistVis;
+        copy.MASTMoves = new int[2][MASTMoves[0].length];
+        copy.nMASTMoves = new int[2];
+        return copy;
+    }
+
+    /**
+     * Clears the RAVE moves before a new simulation, the table is only allocated once
+     */
     public void resetRAVE(int maxId) {
-        RAVEMoves = new int[2][maxId];
+        if (RAVEMoves == null || RAVEMoves[0].length != maxId) {
+            RAVEMoves = new long[2][maxId];
+            RAVEGeneration = 0;
+        }
+        if (++RAVEGeneration == Integer.MAX_VALUE) {
+            // Wrapped around, old entries could look recent again
+            Arrays.fill(RAVEMoves[0], 0);
+            Arrays.fill(RAVEMoves[1], 0);
+            RAVEGeneration = 1;
+        }
     }
 
     public void addRAVEMove(int player, int id, int depth) {
-        RAVEMoves[player - 1][id] = depth;
+        RAVEMoves[player - 1][id] = ((long) RAVEGeneration << 32) | (depth & 0xFFFFFFFFL);
     }
 
     public boolean isRAVEMove(int player, int id, int depth) {
-        return RAVEMoves[player - 1][id] > depth;
+        long entry = RAVEMoves[player - 1][id];
+        return (int) (entry >>> 32) == RAVEGeneration && (int) entry > depth;
     }
 
     public void checkRaveMoves() {
         if (RAVEMoves == null)
             return;
         for (int i = 0; i < RAVEMoves[1].length; i++) {
-            boolean bothMoves = RAVEMoves[0][i] > 0 && RAVEMoves[1][i] > 0;
+            boolean bothMoves = isRAVEMove(1, i, 0) && isRAVEMove(2, i, 0);
             assert !bothMoves : "Two the same moves in RAVE";
         }
     }
 
+    /**
+     * Clears the MAST statistics before a new search, the tables are only allocated once
+     */
     public void resetMAST(int maxId) {
-        histVal = new double[2][maxId];
-        histVis = new int[2][maxId];
-        moveLists = new LinkedList[2];
-        moveLists[0] = new LinkedList<>();
-        moveLists[1] = new LinkedList<>();
+        if (MASTStats == null || MASTStats.maxId != maxId)
+            MASTStats = new MASTTable(maxId);
+        else
+            MASTStats.clear();
+        if (MASTMoves == null) {
+            MASTMoves = new int[2][256];
+            nMASTMoves = new int[2];
+        }
+        nMASTMoves[0] = nMASTMoves[1] = 0;
         totalHistVis = new long[]{0, 0};
     }
 
     public double getMASTValue(int player, int moveId) {
-        return histVal[player - 1][moveId] / (double) histVis[player - 1][moveId];
+        return MASTStats.getValue(player, moveId);
     }
 
     public double getMASTVisits(int player, int moveId) {
-        return histVis[player - 1][moveId];
+        return MASTStats.getVisits(player, moveId);
     }
 
     public void addMASTMove(int player, int moveId) {
-        moveLists[player - 1].add(moveId);
+        int[] moves = MASTMoves[player - 1];
+        int n = nMASTMoves[player - 1];
+        if (n == moves.length)
+            moves = MASTMoves[player - 1] = Arrays.copyOf(moves, 2 * n);
+        moves[n] = moveId;
+        nMASTMoves[player - 1] = n + 1;
     }
 
     public void updateMASTMoves(double[] values) {
+        // The tables can be shared with sample copies on other threads
+        synchronized (MASTStats) {
+            updateMAST(values);
+        }
+    }
+
+    private void updateMAST(double[] values) {
         for (int k = 0; k < 2; k++) {
-            for (int i = 0; i < moveLists[k].size(); i++) {
-                histVal[k][moveLists[k].get(i)] += values[k];
-                histVis[k][moveLists[k].get(i)]++;
+            int[] moves = MASTMoves[k];
+            int n = nMASTMoves[k];
+            for (int i = 0; i < n; i++) {
+                MASTStats.update(k + 1, moves[i], values[k]);
                 totalHistVis[k]++;
                 // Do a double update to reinforce winning/losing moves
-                if (i - 1 == moveLists[k].size()) {
-                    histVal[k][moveLists[k].get(i)] += values[k];
-                    histVis[k][moveLists[k].get(i)]++;
+                if (i - 1 == n) {
+                    MASTStats.update(k + 1, moves[i], values[k]);
                     totalHistVis[k]++;
                 }
             }
-            moveLists[k].clear();
+            nMASTMoves[k] = 0;
         }
     }
 
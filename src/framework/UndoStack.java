@@ -0,0 +1,59 @@
+package framework;
+
+import java.util.Arrays;
+
+/**
+ * The history of a board, used to take back moves. Every move pushes a record of a fixed number of ints, and the hash
+ * before the move.
+ */
+public class UndoStack {
+    private final int stride;
+    public int[] data;
+    private long[] hashes;
+    private int size;
+
+    public UndoStack(int stride) {
+        this.stride = stride;
+        data = new int[64 * stride];
+        hashes = new long[64];
+    }
+
+    /**
+     * Pushes a new record, its ints should be written to data from the returned offset
+     *
+     * @return the offset of the record in data
+     */
+    public int push(long hash) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * size);
+            data = Arrays.copyOf(data, 2 * data.length);
+        }
+        hashes[size] = hash;
+        return stride * size++;
+    }
+
+    /**
+     * Pops the last record, its ints can be read from data until the next push
+     *
+     * @return the offset of the record in data
+     */
+    public int pop() {
+        assert size > 0 : "No move to undo";
+        return stride * --size;
+    }
+
+    /**
+     * @return The hash stored with the record at offset
+     */
+    public long getHash(int offset) {
+        return hashes[offset / stride];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
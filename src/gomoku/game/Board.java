@@ -3,6 +3,7 @@ package gomoku.game;
 import framework.IBoard;
 import framework.MoveList;
 import framework.Options;
+import framework.UndoStack;
 
 import java.util.Random;
 
@@ -14,6 +15,8 @@ public class Board implements IBoard {
     public int nMoves = 0, cPlayer = P1, winner, size;
     private MoveList moveList;
     private long zbHash = 0;
+    // Per move: the move, the previous value of its cell, the winner, the player to move and the number of moves
+    private final UndoStack undo = new UndoStack(5);
 
     public Board(int size) {
         this.size = size;
@@ -23,6 +26,7 @@ public class Board implements IBoard {
 
     @Override
     public void initialize() {
+        undo.clear();
         nMoves = 0;
         cPlayer = 1;
         winner = 0;
@@ -30,7 +34,7 @@ public class Board implements IBoard {
         // initialize the zobrist numbers
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
 
             // SIZE locations, 3 states for each location
             zbnums = new long[size * size][3];
@@ -77,6 +81,11 @@ public class Board implements IBoard {
         return move[0] + (move[1] * size);
     }
 
+    @Override
+    public int getMoveId(int move) {
+        return MoveList.part(move, 0) + (MoveList.part(move, 1) * size);
+    }
+
     @Override
     public int getMaxMoveId() {
         return size * size;
@@ -85,16 +94,26 @@ public class Board implements IBoard {
     @Override
     public IBoard clone() {
         Board newBoard = new Board(size);
-        newBoard.nMoves = nMoves;
-        newBoard.cPlayer = cPlayer;
-        newBoard.winner = winner;
-        newBoard.zbHash = zbHash;
-        for (int i = 0; i < size; i++)
-            for (int j = 0; j < size; j++)
-                newBoard.board[j][i] = board[j][i];
+        newBoard.copyFrom(this);
         return newBoard;
     }
 
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        if (b.size != size) {
+            size = b.size;
+            board = new int[size][size];
+        }
+        nMoves = b.nMoves;
+        cPlayer = b.cPlayer;
+        winner = b.winner;
+        zbHash = b.zbHash;
+        for (int i = 0; i < size; i++)
+            System.arraycopy(b.board[i], 0, board[i], 0, size);
+        undo.clear();
+    }
+
     @Override
     public String getMoveString(int[] move) {
         char cc = (char) (move[0] + 97);
@@ -133,15 +152,26 @@ public class Board implements IBoard {
 
     @Override
     public void doMove(int[] move) {
+        doMove(MoveList.pack(move));
+    }
+
+    @Override
+    public void doMove(int move) {
         assert winner == NONE_WIN : "Game already decided";
 
+        int x = MoveList.part(move, 0), y = MoveList.part(move, 1);
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = board[y][x];
+        undo.data[u + 2] = winner;
+        undo.data[u + 3] = cPlayer;
+        undo.data[u + 4] = nMoves;
         if (winner != NONE_WIN)
             return;
 
-        int pos = (move[1] * size) + move[0];
+        int pos = (y * size) + x;
         zbHash ^= zbnums[pos][0];
-        board[move[1]][move[0]] = cPlayer;
-        int x = move[0], y = move[1];
+        board[y][x] = cPlayer;
 
         winner = checkWinAfterMove(x, y, cPlayer);
         zbHash ^= zbnums[pos][cPlayer];
@@ -150,6 +180,31 @@ public class Board implements IBoard {
         nMoves++;
     }
 
+    @Override
+    public long hashAfter(int move) {
+        int pos = MoveList.part(move, 1) * size + MoveList.part(move, 0);
+        return zbHash ^ zbnums[pos][0] ^ zbnums[pos][cPlayer] ^ whiteHash ^ blackHash;
+    }
+
+    @Override
+    public int checkWinAfter(int move) {
+        // The row check only looks at the neighbours of the new stone, so it does not have to be placed
+        int result = checkWinAfterMove(MoveList.part(move, 0), MoveList.part(move, 1), cPlayer);
+        if (result != NONE_WIN)
+            return result;
+        return (nMoves + 1 == size * size) ? DRAW : NONE_WIN;
+    }
+
+    @Override
+    public void undoMove() {
+        int u = undo.pop();
+        board[MoveList.part(undo.data[u], 1)][MoveList.part(undo.data[u], 0)] = undo.data[u + 1];
+        winner = undo.data[u + 2];
+        cPlayer = undo.data[u + 3];
+        nMoves = undo.data[u + 4];
+        zbHash = undo.getHash(u);
+    }
+
     private int checkWinAfterMove(int i, int j, int pl) {
         int c = 1;
         // x - 1 y - 1
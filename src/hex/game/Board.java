@@ -3,6 +3,7 @@ package hex.game;
 import framework.IBoard;
 import framework.MoveList;
 import framework.Options;
+import framework.UndoStack;
 
 import java.util.Random;
 
@@ -16,7 +17,9 @@ public class Board implements IBoard {
     private int size, currentPlayer, winner, nMoves;
     private MoveList moveList;
     public boolean realPlay = true;
-    private final ShortestPath shortestPath;
+    private ShortestPath shortestPath;
+    // Per move: the move, the previous value of its cell, the winner, the player to move and the number of moves
+    private final UndoStack undo = new UndoStack(5);
 
     public Board(int size) {
         this.size = size;
@@ -26,6 +29,7 @@ public class Board implements IBoard {
 
     @Override
     public void initialize() {
+        undo.clear();
         board = new int[size][size];
         winner = NONE_WIN;
         currentPlayer = P1;
@@ -34,7 +38,7 @@ public class Board implements IBoard {
         // initialize the zobrist numbers
         if (zbnums == null) {
             // init the zobrist numbers
-            Random rng = new Random();
+            Random rng = new Random(ZOBRIST_SEED);
             // 64 locations, 3 states for each location = 192
             zbnums = new long[size][size][3];
             for (int i = 0; i < size; i++) {
@@ -60,14 +64,26 @@ public class Board implements IBoard {
 
     @Override
     public void doMove(int[] move) {
+        doMove(MoveList.pack(move));
+    }
+
+    @Override
+    public void doMove(int move) {
+        int x = MoveList.part(move, 0), y = MoveList.part(move, 1);
+        int u = undo.push(zbHash);
+        undo.data[u] = move;
+        undo.data[u + 1] = board[x][y];
+        undo.data[u + 2] = winner;
+        undo.data[u + 3] = currentPlayer;
+        undo.data[u + 4] = nMoves;
         if (winner != NONE_WIN)
             return;
 
-        zbHash ^= zbnums[move[0]][move[1]][0]; // Hash out the empty
-        zbHash ^= zbnums[move[0]][move[1]][currentPlayer]; // Hash in the player
+        zbHash ^= zbnums[x][y][0]; // Hash out the empty
+        zbHash ^= zbnums[x][y][currentPlayer]; // Hash in the player
 
         //perform the actual move on the board
-        board[move[0]][move[1]] = currentPlayer;
+        board[x][y] = currentPlayer;
         nMoves++;
         // In the real game
         if(!playout)
@@ -86,6 +102,19 @@ public class Board implements IBoard {
         }
     }
 
+    @Override
+    public void undoMove() {
+        int u = undo.pop();
+        board[MoveList.part(undo.data[u], 0)][MoveList.part(undo.data[u], 1)] = undo.data[u + 1];
+        winner = undo.data[u + 2];
+        currentPlayer = undo.data[u + 3];
+        nMoves = undo.data[u + 4];
+        zbHash = undo.getHash(u);
+        // Back before the start of the playout
+        if (nMoves <= playoutStart)
+            playout = false;
+    }
+
     @Override
     public double evaluate(int player) {
         if(nMoves < 4)
@@ -118,6 +147,11 @@ public class Board implements IBoard {
         return move[0] + (size * move[1]);
     }
 
+    @Override
+    public int getMoveId(int move) {
+        return MoveList.part(move, 0) + (size * MoveList.part(move, 1));
+    }
+
     @Override
     public int getMaxMoveId() {
         return size * size;
@@ -143,10 +177,12 @@ public class Board implements IBoard {
     }
 
     private boolean playout = false;
+    private int playoutStart;
 
     @Override
     public void startPlayout() {
         playout = true;
+        playoutStart = nMoves;
     }
 
     public int checkWin() {
@@ -185,21 +221,31 @@ public class Board implements IBoard {
     @Override
     public IBoard clone() {
         Board b = new Board(size);
-        b.board = new int[size][size];
-        b.size = size;
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                b.board[i][j] = board[i][j];
-            }
-        }
-        b.winner = winner;
-        b.currentPlayer = currentPlayer;
-        b.zbHash = zbHash;
-        b.nMoves = nMoves;
-        b.realPlay = false; // for algorithms the board will be completely filled before checking for a win
+        b.copyFrom(this);
         return b;
     }
 
+    @Override
+    public void copyFrom(IBoard other) {
+        Board b = (Board) other;
+        if (b.size != size) {
+            size = b.size;
+            shortestPath = new ShortestPath(size);
+            board = null;
+        }
+        if (board == null)
+            board = new int[size][size];
+        for (int i = 0; i < size; i++)
+            System.arraycopy(b.board[i], 0, board[i], 0, size);
+        winner = b.winner;
+        currentPlayer = b.currentPlayer;
+        zbHash = b.zbHash;
+        nMoves = b.nMoves;
+        realPlay = false; // for algorithms the board will be completely filled before checking for a win
+        playout = false;
+        undo.clear();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
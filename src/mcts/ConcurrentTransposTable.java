@@ -0,0 +1,145 @@
+package mcts;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A transposition table that search threads can share without locking. A new state is inserted at the head of its
+ * chain with a compare-and-set, a thread that loses the race looks through the chain again, so a position is never
+ * added twice. The counters are striped over the threads.
+ * <p>
+ * As in TransposTable, a state that was not used during the last offset generations is stale, so pack() does not have
+ * to walk the table. A stale state is skipped when a chain is searched, and every new state removes the stale states
+ * of the next chain in turn. Only the head of a chain is replaced with a compare-and-set, so a chain is swept by a
+ * single thread at a time.
+ */
+public class ConcurrentTransposTable implements ITransposTable {
+    private static final int TT_SIZE = 1 << 19;
+    private static final int MASK = TT_SIZE - 1;
+    //
+    private final AtomicReferenceArray<State> states = new AtomicReferenceArray<>(TT_SIZE);
+    private final LongAdder collisions = new LongAdder(), positions = new LongAdder(), recoveries = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final AtomicInteger sweepPos = new AtomicInteger();
+    private int generation = 0, offset = 0;
+
+    @Override
+    public State getState(long hash, boolean existingOnly) {
+        int hashPos = (int) (hash & MASK);
+        State newState = null;
+        while (true) {
+            State head = states.get(hashPos);
+            for (State s = head; s != null; s = s.next) {
+                // A stale state may be removed by another thread at any time, so it is not used again
+                if (s.hash == hash && !isStale(s)) {
+                    recoveries.increment();
+                    return s;
+                }
+            }
+            if (existingOnly)
+                return null;
+            if (newState == null)
+                newState = new State(hash, generation);
+            newState.next = head;
+            // The new state is published by the compare-and-set, with its fields
+            if (states.compareAndSet(hashPos, head, newState)) {
+                positions.increment();
+                if (head != null)
+                    collisions.increment();
+                sweep();
+                return newState;
+            }
+            // Another thread added a state to the chain in the meantime, it may be this position
+        }
+    }
+
+    /**
+     * Removes the stale states from the next chain in turn
+     */
+    private void sweep() {
+        int i = sweepPos.getAndIncrement() & MASK;
+        State head = states.get(i);
+        // Stale states at the head, a state inserted in the meantime ends the sweep
+        while (head != null && isStale(head)) {
+            if (!states.compareAndSet(i, head, head.next))
+                return;
+            removed();
+            head = head.next;
+        }
+        if (head == null)
+            return;
+        for (State ps = head, s = head.next; s != null; s = s.next) {
+            if (isStale(s)) {
+                ps.next = s.next;
+                removed();
+            } else
+                ps = s;
+        }
+    }
+
+    private void removed() {
+        positions.decrement();
+        removed.increment();
+    }
+
+    private boolean isStale(State s) {
+        return generation - s.lastVisit > offset;
+    }
+
+    @Override
+    public int pack(int offset) {
+        recoveries.reset();
+        collisions.reset();
+        this.offset = offset;
+        generation++;
+        return (int) removed.sumThenReset();
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getPositions() {
+        return positions.intValue();
+    }
+
+    @Override
+    public void save(Path file) throws IOException {
+        List<State> saved = new ArrayList<>(positions.intValue());
+        for (int i = 0; i < TT_SIZE; i++) {
+            for (State s = states.get(i); s != null; s = s.next) {
+                if (!isReplaced(states.get(i), s))
+                    saved.add(s);
+            }
+        }
+        OpenTransposTable.save(file, saved);
+    }
+
+    /**
+     * @return Whether a stale state was added again, new states are inserted at the head of the chain
+     */
+    private static boolean isReplaced(State head, State state) {
+        for (State s = head; s != state; s = s.next) {
+            if (s.hash == state.hash)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int getCollisions() {
+        return collisions.intValue();
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+}
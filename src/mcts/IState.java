@@ -0,0 +1,37 @@
+package mcts;
+
+/**
+ * The statistics of a position in a transposition table. Values are given with respect to a player, i.e. negated for
+ * player 2.
+ */
+public interface IState {
+    void updateStats(double[] result, int n, boolean regression, boolean cusum);
+
+    /**
+     * @return The mean result for player, or +/- Integer.MAX_VALUE if the position is solved
+     */
+    double getMean(int player);
+
+    /**
+     * @return The mean result for player, mixed with the value forecast by the regression if there is one
+     */
+    double getMean(int player, int regSteps, double regAlpha);
+
+    double getImValue(int player);
+
+    void setImValue(double val, int player);
+
+    boolean isSolved();
+
+    void setSolved(int player);
+
+    int getVisits();
+
+    /**
+     * Marks the state as used in the current generation of its table, so it is not removed as stale. UCTNode touches
+     * its state whenever it is searched.
+     *
+     * @param generation The current generation of the table, see ITransposTable.getGeneration
+     */
+    void touch(int generation);
+}
@@ -0,0 +1,52 @@
+package mcts;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Stores the statistics of positions by their Zobrist hash, so that transpositions in the tree share them.
+ */
+public interface ITransposTable {
+    /**
+     * @param existingOnly Only return a state if the position is already in the table, don't add it
+     * @return The state of the position, or null if existingOnly and the position is not in the table
+     */
+    IState getState(long hash, boolean existingOnly);
+
+    /**
+     * Called after every move, starts a new generation. Positions that were not used during the last offset
+     * generations are removed, tables may do so lazily.
+     *
+     * @return The number of positions removed since the previous call
+     */
+    int pack(int offset);
+
+    /**
+     * @return The number of calls to pack, states remember the generation in which they were last used
+     */
+    int getGeneration();
+
+    int getPositions();
+
+    int getCollisions();
+
+    /**
+     * @return The fraction of the capacity of the table in use, or NaN if the table grows without limit
+     */
+    default double getFillRate() {
+        return Double.NaN;
+    }
+
+    /**
+     * Saves the positions in the table, also the stale ones that were not removed yet, as pack() after the last move
+     * makes every position stale. The file can be loaded into an OpenTransposTable
+     */
+    void save(Path file) throws IOException;
+
+    /**
+     * @return Whether search threads can share the table without synchronizing
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
+}
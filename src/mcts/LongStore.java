@@ -0,0 +1,80 @@
+package mcts;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed number of longs, the storage of an OpenTransposTable. Either an array on the heap, or direct buffers outside
+ * the heap.
+ */
+interface LongStore {
+    long get(long index);
+
+    void set(long index, long value);
+
+    final class Heap implements LongStore {
+        private final long[] values;
+
+        Heap(int size) {
+            values = new long[size];
+        }
+
+        @Override
+        public long get(long index) {
+            return values[(int) index];
+        }
+
+        @Override
+        public void set(long index, long value) {
+            values[(int) index] = value;
+        }
+    }
+
+    /**
+     * Direct buffers are not scanned by the garbage collector, and can be larger than the heap. A buffer holds at most
+     * 2^31 bytes, so the values are split over chunks of 2^chunkBits longs. The memory is limited by
+     * -XX:MaxDirectMemorySize, which is the maximum heap size by default, see scripts/run.sh.
+     */
+    final class OffHeap implements LongStore {
+        private static final int CHUNK_BITS = 27; // 1 GB per chunk
+        private final int chunkBits;
+        private final long chunkMask;
+        private final LongBuffer[] chunks;
+
+        OffHeap(long size) {
+            this(size, CHUNK_BITS);
+        }
+
+        /**
+         * Smaller chunks than the default are only used to test the chunk boundaries
+         */
+        OffHeap(long size, int chunkBits) {
+            this.chunkBits = chunkBits;
+            chunkMask = (1L << chunkBits) - 1;
+            chunks = new LongBuffer[chunks(size)];
+            for (int i = 0; i < chunks.length; i++) {
+                // Direct buffers start zeroed
+                chunks[i] = ByteBuffer.allocateDirect(chunkLength(size, i) * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+
+        private int chunks(long size) {
+            return (int) ((size + chunkMask) >>> chunkBits);
+        }
+
+        private int chunkLength(long size, int chunk) {
+            return (int) Math.min(chunkMask + 1, size - ((long) chunk << chunkBits));
+        }
+
+        @Override
+        public long get(long index) {
+            return chunks[(int) (index >>> chunkBits)].get((int) (index & chunkMask));
+        }
+
+        @Override
+        public void set(long index, long value) {
+            chunks[(int) (index >>> chunkBits)].put((int) (index & chunkMask), value);
+        }
+    }
+}
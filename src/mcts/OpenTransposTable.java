@@ -0,0 +1,468 @@
+package mcts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A transposition table of longs with open addressing, no objects are allocated per position, so its memory is fixed
+ * when it is created. A position is stored in the bucket of BUCKET entries at its hash. When the bucket is full, the
+ * entry not used in this generation with the fewest visits is replaced. Solved positions are never replaced, if all
+ * positions in the bucket are solved, the new position is not stored, and its state keeps the statistics itself.
+ * <p>
+ * Every entry takes ENTRY longs: the hash, the visits and flags, the sum of the results and the implicit minimax value.
+ * Regression and change detection are not stored. Not thread-safe, every search thread needs its own table.
+ * <p>
+ * Every entry holds the generation in which it was last used. Entries that were not used during the last offset
+ * generations are stale, they are free to be taken by new positions, so pack() does not have to walk the table.
+ * <p>
+ * The longs are stored in an array, or outside the heap for tables larger than the heap, see LongStore.
+ * <p>
+ * The positions of a table can be saved to a file, and loaded into a new table, so that a search starts with the
+ * positions of earlier searches. The file holds a header of HEADER longs, followed by the entries of the positions as
+ * little-endian longs. Loaded positions are pinned, they do not become stale, but can still be replaced in a full
+ * bucket.
+ */
+public class OpenTransposTable implements ITransposTable {
+    private static final int ENTRY = 4, BUCKET = 4, ENTRY_BYTES = ENTRY * Long.BYTES;
+    private static final int KEY = 0, META = 1, SUM = 2, IM = 3;
+    // The meta data of an entry: the visits in the low 32 bits, the solved player, a used flag, a pinned flag, and the
+    // generation of the last use in the high bits
+    private static final long VISITS_MASK = 0xFFFFFFFFL, SOLVED_MASK = 3L << 32, USED = 1L << 34, PINNED = 1L << 35;
+    private static final int SOLVED_SHIFT = 32, GEN_SHIFT = 36;
+    private static final long GEN_MASK = (1L << (64 - GEN_SHIFT)) - 1;
+    private static final long NO_IM = Double.doubleToRawLongBits(Integer.MIN_VALUE);
+    // The header of a saved table: the magic number and the number of positions
+    private static final long MAGIC = 0x4D43545354543032L; // "MCTSTT02"
+    private static final int HEADER = 2;
+    //
+    public int collisions = 0, positions = 0, recoveries = 0, rejected = 0;
+    private final LongStore table;
+    private final long bucketMask, capacity;
+    private int generation = 0, offset = 0, removed = 0;
+
+    /**
+     * @param size The number of positions, rounded up to a power of two
+     */
+    public OpenTransposTable(int size) {
+        this(size, false);
+    }
+
+    /**
+     * @param size    The number of positions, rounded up to a power of two
+     * @param offHeap Whether to store the table outside the heap
+     */
+    public OpenTransposTable(long size, boolean offHeap) {
+        long entries = entries(size);
+        bucketMask = entries / BUCKET - 1;
+        capacity = entries;
+        if (offHeap)
+            table = new LongStore.OffHeap(entries * ENTRY);
+        else if (entries * ENTRY <= Integer.MAX_VALUE - 8)
+            table = new LongStore.Heap((int) (entries * ENTRY));
+        else
+            throw new IllegalArgumentException("Table of " + size + " positions does not fit in an array, store it off-heap");
+    }
+
+    /**
+     * Adds the positions saved with save() to the table. Positions that do not fit in their bucket replace the least
+     * visited ones, as during a search.
+     */
+    public void load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER * Long.BYTES);
+            read(channel, buffer);
+            if (buffer.remaining() < HEADER * Long.BYTES || buffer.getLong() != MAGIC)
+                throw new IOException(file + " is not a saved transposition table");
+            long count = buffer.getLong();
+            if (count < 0 || channel.size() != (HEADER + count * ENTRY) * Long.BYTES)
+                throw new IOException(file + " is damaged");
+            for (long i = 0; i < count; i++) {
+                if (buffer.remaining() < ENTRY_BYTES) {
+                    buffer.compact();
+                    read(channel, buffer);
+                }
+                put(buffer.getLong(), buffer.getLong() | PINNED, buffer.getLong(), buffer.getLong());
+            }
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                break;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes every position in the table to a file, stale or not. Only the positions are written, so the file does
+     * not grow with the capacity of the table.
+     */
+    public void save(Path file) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (long e = 0; e < capacity * ENTRY; e += ENTRY) {
+                if (isSaved(e))
+                    writer.add(table.get(e + KEY), table.get(e + META), table.get(e + SUM), table.get(e + IM));
+            }
+        }
+    }
+
+    /**
+     * Writes the statistics of the states to a file that an OpenTransposTable can load, used to save other tables
+     */
+    static void save(Path file, Iterable<State> states) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (State s : states) {
+                long meta = ((long) s.solvedPlayer << SOLVED_SHIFT) | (s.visits & VISITS_MASK);
+                writer.add(s.hash, meta, Double.doubleToRawLongBits(s.getSum()),
+                        Double.doubleToRawLongBits(s.getImValue(1)));
+            }
+        }
+    }
+
+    /**
+     * A stale position can be added again in another entry of its bucket, only the latest entry is saved
+     */
+    private boolean isSaved(long e) {
+        long meta = table.get(e + META), hash = table.get(e + KEY);
+        if ((meta & USED) == 0)
+            return false;
+        long bucket = (hash & bucketMask) * BUCKET * ENTRY;
+        for (long o = bucket; o < bucket + BUCKET * ENTRY; o += ENTRY) {
+            long other = table.get(o + META);
+            if (o != e && (other & USED) != 0 && table.get(o + KEY) == hash && age(other) < age(meta))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of generations since the entry was last used
+     */
+    private long age(long meta) {
+        return (generation - (meta >>> GEN_SHIFT)) & GEN_MASK;
+    }
+
+    /**
+     * Writes the entries of a saved table, the number of positions in the header is written when it is closed
+     */
+    private static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long count = 0;
+
+        Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putLong(MAGIC).putLong(0);
+        }
+
+        void add(long hash, long meta, long sum, long imValue) throws IOException {
+            if (buffer.remaining() < ENTRY_BYTES)
+                write();
+            // Only the statistics are saved, not how the position was used
+            buffer.putLong(hash).putLong(meta & (SOLVED_MASK | VISITS_MASK)).putLong(sum).putLong(imValue);
+            count++;
+        }
+
+        private void write() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                write();
+                buffer.putLong(MAGIC).putLong(count).flip();
+                while (buffer.hasRemaining())
+                    channel.write(buffer, buffer.position());
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Adds a position with its statistics, the generation in meta is replaced by the current one
+     */
+    private void put(long hash, long meta, long sum, long imValue) {
+        long e = find(hash, true);
+        if (e < 0)
+            return;
+        long stats = PINNED | SOLVED_MASK | VISITS_MASK;
+        table.set(e + META, (table.get(e + META) & ~stats) | (meta & stats));
+        table.set(e + SUM, sum);
+        table.set(e + IM, imValue);
+    }
+
+    /**
+     * @return The number of entries of a table of size positions
+     */
+    private static long entries(long size) {
+        return Math.max(BUCKET, Long.highestOneBit(Math.max(1, size - 1)) << 1);
+    }
+
+    /**
+     * @param bytes The memory budget of the table
+     * @return The number of positions of the largest table that fits in the budget
+     */
+    public static long positionsFor(long bytes) {
+        return Math.max(BUCKET, Long.highestOneBit(bytes / ENTRY_BYTES));
+    }
+
+    @Override
+    public IState getState(long hash, boolean existingOnly) {
+        long entry = find(hash, !existingOnly);
+        if (entry < 0 && existingOnly)
+            return null;
+        return new Entry(hash, entry);
+    }
+
+    /**
+     * @param create Add the position if it is not in the table
+     * @return The offset of the entry of the position, or -1 if it is not in the table and cannot be added
+     */
+    private long find(long hash, boolean create) {
+        long bucket = (hash & bucketMask) * BUCKET * ENTRY, free = -1, replace = -1;
+        long minPriority = Long.MAX_VALUE;
+        for (long e = bucket; e < bucket + BUCKET * ENTRY; e += ENTRY) {
+            long meta = table.get(e + META);
+            if (!isLive(meta)) {
+                if (free < 0)
+                    free = e;
+            } else if (table.get(e + KEY) == hash) {
+                recoveries++;
+                return e;
+            } else if ((meta & SOLVED_MASK) == 0 && priority(meta) < minPriority) {
+                minPriority = priority(meta);
+                replace = e;
+            }
+        }
+        if (!create)
+            return -1;
+        if (free < 0 && replace < 0) {
+            // All positions in the bucket are solved
+            rejected++;
+            return -1;
+        } else if (free < 0) {
+            // The bucket is full, replace the least valuable position
+            collisions++;
+            free = replace;
+        } else if ((table.get(free + META) & USED) != 0) {
+            // A stale position is removed now
+            removed++;
+        } else
+            positions++;
+        table.set(free + KEY, hash);
+        table.set(free + META, USED | ((long) generation & GEN_MASK) << GEN_SHIFT);
+        table.set(free + SUM, Double.doubleToRawLongBits(0));
+        table.set(free + IM, NO_IM);
+        return free;
+    }
+
+    /**
+     * Positions used in this generation or loaded are kept over older ones, then positions with more visits
+     */
+    private long priority(long meta) {
+        long current = ((meta & PINNED) != 0 || (((meta >>> GEN_SHIFT) ^ generation) & GEN_MASK) == 0) ? 1L << 32 : 0;
+        return current | (meta & VISITS_MASK);
+    }
+
+    @Override
+    public int pack(int offset) {
+        recoveries = 0;
+        collisions = 0;
+        rejected = 0;
+        this.offset = offset;
+        generation++;
+        int removed = this.removed;
+        this.removed = 0;
+        return removed;
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Whether the entry holds a position that was loaded, or used during the last offset generations
+     */
+    private boolean isLive(long meta) {
+        return (meta & USED) != 0 && ((meta & PINNED) != 0 || age(meta) <= offset);
+    }
+
+    /**
+     * Marks the entry as used in this generation
+     *
+     * @return The new meta data of the entry
+     */
+    private long stamp(long e, long meta) {
+        meta = (meta & ~(GEN_MASK << GEN_SHIFT)) | ((long) generation & GEN_MASK) << GEN_SHIFT;
+        table.set(e + META, meta);
+        return meta;
+    }
+
+    @Override
+    public int getPositions() {
+        return positions;
+    }
+
+    @Override
+    public int getCollisions() {
+        return collisions;
+    }
+
+    @Override
+    public double getFillRate() {
+        return positions / (double) capacity;
+    }
+
+    /**
+     * The state of a single position, a handle to its entry. Every getState() returns a new handle, so it should be
+     * kept by the caller, as UCTNode does. When its entry is replaced by another position, the position is looked up
+     * again, and added again if needed. A proof is also kept here, so it is never lost. A position that could not be
+     * stored keeps its statistics in a state of its own.
+     */
+    private final class Entry implements IState {
+        private final long hash;
+        private long entry;
+        private int solvedPlayer;
+        private State local;
+
+        Entry(long hash, long entry) {
+            this.hash = hash;
+            this.entry = entry;
+            if (entry < 0)
+                local = new State(hash, generation);
+        }
+
+        /**
+         * @return The offset of the entry of the position, or -1 if it is not in the table and was not added. A position
+         * that cannot be added is kept in local from then on.
+         */
+        private long entry(boolean create) {
+            if (local != null)
+                return -1;
+            long e = entry;
+            if (e < 0 || table.get(e + KEY) != hash || !isLive(table.get(e + META))) {
+                e = find(hash, create);
+                entry = e;
+                if (e < 0 && create)
+                    local = new State(hash, generation);
+            }
+            return e;
+        }
+
+        @Override
+        public void updateStats(double[] result, int n, boolean regression, boolean cusum) {
+            long e = entry(true);
+            if (e < 0) {
+                local.updateStats(result, n, regression, cusum);
+                return;
+            }
+            assert (table.get(e + META) & SOLVED_MASK) == 0 : "UpdateStats called on solved position!";
+            table.set(e + SUM, Double.doubleToRawLongBits(Double.longBitsToDouble(table.get(e + SUM)) + result[0]));
+            stamp(e, table.get(e + META) + n);
+        }
+
+        @Override
+        public double getMean(int player) {
+            if (isSolved()) // Position is solved, return inf
+                return (player == solvedPlayer) ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            long e = entry(false);
+            if (e < 0)
+                return (local == null) ? 0 : local.getMean(player);
+            long visits = stamp(e, table.get(e + META)) & VISITS_MASK;
+            if (visits > 0)
+                return (((player == 1) ? 1 : -1) * Double.longBitsToDouble(table.get(e + SUM))) / visits;
+            else
+                return 0;
+        }
+
+        @Override
+        public double getMean(int player, int regSteps, double regAlpha) {
+            return getMean(player);
+        }
+
+        @Override
+        public double getImValue(int player) {
+            long e = entry(false);
+            if (e < 0)
+                return (local == null) ? Integer.MIN_VALUE : local.getImValue(player);
+            double imValue = Double.longBitsToDouble(table.get(e + IM));
+            return ((player == 1) ? 1 : -1) * imValue;
+        }
+
+        @Override
+        public void setImValue(double val, int player) {
+            long e = entry(true);
+            if (e < 0)
+                local.setImValue(val, player);
+            else
+                table.set(e + IM, Double.doubleToRawLongBits(((player == 1) ? 1 : -1) * val));
+        }
+
+        @Override
+        public boolean isSolved() {
+            if (solvedPlayer == 0) {
+                long e = entry(false);
+                if (e >= 0)
+                    solvedPlayer = (int) ((table.get(e + META) & SOLVED_MASK) >>> SOLVED_SHIFT);
+            }
+            return solvedPlayer != 0;
+        }
+
+        @Override
+        public void setSolved(int player) {
+            if (!isSolved())
+                solvedPlayer = player;
+            else if (player != solvedPlayer)
+                throw new RuntimeException("setSolved with different player!");
+            long e = entry(true);
+            if (e >= 0)
+                stamp(e, (table.get(e + META) & ~SOLVED_MASK) | ((long) player << SOLVED_SHIFT));
+        }
+
+        @Override
+        public int getVisits() {
+            long e = entry(false);
+            if (e < 0)
+                return (local == null) ? 0 : local.getVisits();
+            return (int) (table.get(e + META) & VISITS_MASK);
+        }
+
+        /**
+         * The entry is stamped with the generation of this table, it is the same as the one given
+         */
+        @Override
+        public void touch(int generation) {
+            long e = entry;
+            // A stale entry is still kept when it was not taken by another position
+            if (e >= 0 && table.get(e + KEY) == hash && (table.get(e + META) & USED) != 0)
+                stamp(e, table.get(e + META));
+        }
+
+        @Override
+        public String toString() {
+            if (isSolved())
+                return "solved win P" + solvedPlayer;
+            long e = entry(false);
+            if (e < 0)
+                return (local == null) ? "not in table" : local.toString();
+            double imValue = Double.longBitsToDouble(table.get(e + IM));
+            String str = "val_p1: " + State.df2.format(getMean(1)) + "\tn: " + State.df0.format(getVisits());
+            if (imValue != Integer.MIN_VALUE)
+                str += "\t :: im_p1: " + State.df2.format(imValue);
+            return str;
+        }
+    }
+}
@@ -3,56 +3,107 @@ package mcts;
 import framework.CUSUMChangeDetector;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.text.DecimalFormat;
 
-public class State {
+/**
+ * The statistics of a position in a chained transposition table. The history needed for regression and change
+ * detection is only attached when these are used, see Change. The state does not know its table, the generation in
+ * which it was last used is set by touch().
+ */
+public class State implements IState {
     public static final DecimalFormat df2 = new DecimalFormat("###,##0.000");
     public static final DecimalFormat df0 = new DecimalFormat("###,##0");
+    // Atomic access to the statistics, several search threads can update the same state
+    private static final VarHandle VISITS, SUM;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            VISITS = l.findVarHandle(State.class, "visits", int.class);
+            SUM = l.findVarHandle(State.class, "sum", double.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public long hash;
-    public int visits = 0, lastVisit = 0, resultC = 0;
-    public short solvedPlayer = 0;
-    public boolean visited = false;
-    private double imValue = Integer.MIN_VALUE, sum = 0;
-    public SimpleRegression regressor;
-    private CUSUMChangeDetector cSum = new CUSUMChangeDetector();
-    private double[] MA = new double[20];
+    public volatile int visits = 0;
+    public int lastVisit; // The generation of the table when the state was last used
+    public volatile short solvedPlayer = 0;
+    private volatile double imValue = Integer.MIN_VALUE, sum = 0;
+    private Change change;
     public State next = null;
 
-    public State(long hash) {
-        this.hash = hash;
+    /**
+     * The history of the results, created on the first update with regression or change detection
+     */
+    private static final class Change {
+        int resultC = 0;
+        final double[] MA = new double[20];
+        final CUSUMChangeDetector cSum = new CUSUMChangeDetector();
+        SimpleRegression regressor;
     }
 
-    public void updateStats(double[] result, int n, boolean regression) {
-        assert !this.isSolved() : "UpdateStats called on solved position!";
-
-        visited = true;
-        sum += result[0];
-        visits += n;
+    public State(long hash, int generation) {
+        this.hash = hash;
+        lastVisit = generation;
+    }
 
-        resultC++;
-        MA[resultC % MA.length] = result[0];
+    @Override
+    public void updateStats(double[] result, int n, boolean regression, boolean cusum) {
+        SUM.getAndAdd(this, result[0]);
+        VISITS.getAndAdd(this, n);
 
-        if (regression && regressor == null)
-            regressor = new SimpleRegression();
+        if (regression || cusum)
+            updateChange(result, regression);
+    }
 
-        if (regression && cSum.update(sum / visits)) {
-            regressor.clear();
-            cSum.reset();
+    /**
+     * Regression and change detection need a consistent view of the statistics, so these are updated under a lock
+     */
+    private synchronized void updateChange(double[] result, boolean regression) {
+        if (change == null)
+            change = new Change();
+        change.resultC++;
+        change.MA[change.resultC % change.MA.length] = result[0];
+
+        if (regression && change.regressor == null)
+            change.regressor = new SimpleRegression();
+
+        if (change.cSum.update(sum / visits)) {
+            if (change.regressor != null)
+                change.regressor.clear();
+            change.cSum.reset();
         }
 
         if (regression)
-            regressor.addData(visits, sum / visits);
+            change.regressor.addData(visits, sum / visits);
+    }
+
+    double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return The regression of the mean over the visits, or null if regression is not used
+     */
+    public SimpleRegression getRegressor() {
+        Change change = this.change;
+        return (change == null) ? null : change.regressor;
     }
 
     public double getRegValue(int steps, int player) {
+        SimpleRegression regressor = getRegressor();
         if (regressor.getN() > 1)
             return ((player == 1) ? 1 : -1) * regressor.predict(visits + steps);  // WARN Visits + steps is correct :)
         else
             return Integer.MIN_VALUE; // Value is captured in calling method
     }
 
+    @Override
     public double getMean(int player) {
-        visited = true;
         if (solvedPlayer == 0) { // Position is not solved, return mean
             if (visits > 0)
                 return (((player == 1) ? 1 : -1) * sum) / visits;
@@ -62,10 +113,10 @@ public class State {
             return (player == solvedPlayer) ? Integer.MAX_VALUE : Integer.MIN_VALUE;
     }
 
+    @Override
     public double getMean(int player, int regSteps, double regAlpha) {
-        visited = true;
         if (solvedPlayer == 0) { // Position is not solved, return mean
-
+            SimpleRegression regressor = getRegressor();
             if (regressor == null || regressor.getN() < 10 || regressor.getRSquare() < .6)
                 return getMean(player);
 
@@ -83,34 +134,44 @@ public class State {
             return (player == solvedPlayer) ? Integer.MAX_VALUE : Integer.MIN_VALUE;
     }
 
+    @Override
     public double getImValue(int player) {
         return ((player == 1) ? 1 : -1) * imValue;
     }
 
+    @Override
     public void setImValue(double val, int player) {
         imValue = ((player == 1) ? 1 : -1) * val;
     }
 
+    @Override
     public boolean isSolved() {
         return solvedPlayer != 0;
     }
 
+    @Override
     public void setSolved(int player) {
-        visited = true;
         if (solvedPlayer > 0 && player != solvedPlayer)
             throw new RuntimeException("setSolved with different player!");
         this.solvedPlayer = (short) player;
     }
 
+    @Override
     public int getVisits() {
         return visits;
     }
 
+    @Override
+    public void touch(int generation) {
+        lastVisit = generation;
+    }
+
     public String toString() {
         if (solvedPlayer == 0) {
             String str = "val_p1: " + df2.format(getMean(1)) + "\tn: " + df0.format(visits);
             if (imValue != Integer.MIN_VALUE)
                 str += "\t :: im_p1: " + df2.format(imValue);
+            SimpleRegression regressor = getRegressor();
             if (regressor != null) {
                 str += "\t :: reg1_p1: " + df2.format(getRegValue(1, 1));
                 str += "\t :: reg5_p1: " + df2.format(getRegValue(5, 1));
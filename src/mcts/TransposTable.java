@@ -1,84 +1,129 @@
 package mcts;
 
-public class TransposTable {
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chains the states of positions with the same hash position. Every state remembers the generation in which it was
+ * last used, a state that was not used during the last offset generations is stale. Stale states are removed from a
+ * chain when it is searched, and every new state also cleans the next chain in turn, so that pack() does not have to
+ * walk the table.
+ */
+public class TransposTable implements ITransposTable {
     private final int TT_SIZE = (int) Math.pow(2, 19);
     private final long MASK = TT_SIZE - 1;
     public int collisions = 0, positions = 0, recoveries = 0;
     //
     private State[] states;
-    private int moveCounter = 0;
+    private int generation = 0, offset = 0, removed = 0, sweepPos = 0;
 
     public TransposTable() {
         this.states = new State[TT_SIZE];
     }
 
+    @Override
     public State getState(long hash, boolean existingOnly) {
         int hashPos = getHashPos(hash);
-        State s = states[hashPos];
-        if (s != null) {
-            while (true) {
-                if (s.hash == hash) {
-                    recoveries++;
-                    return s;
-                }
-                if (s.next == null)
-                    break;
-                s = s.next;
+        State s = states[hashPos], ps = null;
+        while (s != null) {
+            if (isStale(s)) {
+                s = remove(hashPos, ps, s);
+                continue;
             }
-            //
-            if (existingOnly)
-                return null;
-            collisions++;
-            positions++;
+            if (s.hash == hash) {
+                recoveries++;
+                return s;
+            }
+            ps = s;
+            s = s.next;
+        }
+        if (existingOnly)
+            return null;
+        positions++;
+        State newState = new State(hash, generation);
+        if (ps != null) {
             // Transposition was not found, i.e. collision
-            State newState = new State(hash);
-            s.next = newState;
-            return newState;
-        } else if (!existingOnly) {
-            positions++;
-            // Transposition was not encountered before
-            s = new State(hash);
-            states[hashPos] = s;
-            return s;
+            collisions++;
+            ps.next = newState;
         } else {
-            return null;
+            // Transposition was not encountered before
+            states[hashPos] = newState;
+        }
+        sweep();
+        return newState;
+    }
+
+    /**
+     * Removes the stale states from the next chain in turn
+     */
+    private void sweep() {
+        State s = states[sweepPos], ps = null;
+        while (s != null) {
+            if (isStale(s)) {
+                s = remove(sweepPos, ps, s);
+            } else {
+                ps = s;
+                s = s.next;
+            }
         }
+        sweepPos = (sweepPos + 1) & (int) MASK;
+    }
+
+    private boolean isStale(State s) {
+        return generation - s.lastVisit > offset;
     }
 
+    /**
+     * Removes s, which follows ps in chain hashPos
+     *
+     * @return The state after s
+     */
+    private State remove(int hashPos, State ps, State s) {
+        if (ps == null)
+            states[hashPos] = s.next;
+        else
+            ps.next = s.next;
+        positions--;
+        removed++;
+        return s.next;
+    }
+
+    @Override
     public int pack(int offset) {
         recoveries = 0;
         collisions = 0;
-        int prePositions = positions;
-        State s, ps;
-        for (int i = 0; i < TT_SIZE; i++) {
-            s = states[i];
-            if (s == null)
-                continue;
-            ps = null;
-            // Check if the states were visited this round
-            while (true) {
-                if (s.visited && offset > 0) {
-                    s.visited = false;
-                    s.lastVisit = moveCounter;
-                    ps = s;
-                } else if (moveCounter - s.lastVisit >= offset) {
-                    if (ps != null) {
-                        ps.next = s.next;
-                        positions--;
-                        ps = s;
-                    } else if (ps == null) {
-                        positions--;
-                        states[i] = s.next;
-                        ps = null;
-                    }
-                }
-                if (s.next == null)
-                    break;
-                s = s.next;
-            }
+        this.offset = offset;
+        generation++;
+        int removed = this.removed;
+        this.removed = 0;
+        return removed;
+    }
+
+    @Override
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public int getPositions() {
+        return positions;
+    }
+
+    @Override
+    public void save(Path file) throws IOException {
+        List<State> saved = new ArrayList<>(positions);
+        for (State head : states) {
+            for (State s = head; s != null; s = s.next)
+                saved.add(s);
         }
-        moveCounter++;
-        return (prePositions - positions);
+        OpenTransposTable.save(file, saved);
+    }
+
+    @Override
+    public int getCollisions() {
+        return collisions;
     }
 
     private int count() {
@@ -21,7 +21,7 @@ public class POTester implements AIPlayer {
             throw new RuntimeException("MCTS Options not set.");
 
         MoveList moves = board.getPlayoutMoves(options.heuristics);
-        bestMove = moves.get(Options.r.nextInt(moves.size()));
+        bestMove = moves.get(Options.rng().nextInt(moves.size()));
 
         // show information on the best move
         if (Options.debug) {
@@ -0,0 +1,415 @@
+package mcts.uct;
+
+import framework.FastLog;
+import framework.IBoard;
+import framework.MoveList;
+import framework.Options;
+import mcts.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * Stores the UCT tree in preallocated primitive arrays instead of UCTNode objects. Node 0 is the root, the children
+ * of a node are stored consecutively from firstChild. Statistics are kept in the pool itself, the transposition table
+ * is not used.
+ * <p>
+ * Supports the solver, RAVE, MAST, implicit minimax and multiple samples. Regression, change detection, parallel
+ * search and tree reuse are not supported, UCTPlayer rejects these options. Without transpositions, a search only
+ * differs from one with UCTNode objects once the tree holds a position reached by two paths.
+ */
+public class NodePool {
+    private static final int NOT_EXPANDED = -1, FULL = -2;
+    private final int capacity;
+    // Node statistics, all values are with respect to player 1
+    private final int[] visits, raveVisits, firstChild, nChildren, moveId, moves;
+    private final double[] sums, raveSums;
+    private final byte[] solved;
+    private double[] imValues;
+    // The moves leading to the nodes are packed, see MoveList.pack
+    private int moveParts, size = 0, rootPlayer;
+    // Path buffers for the simulations
+    private int[] path = new int[64], selected = new int[64], players = new int[64];
+    private final double[] result = new double[2];
+
+    public NodePool(int capacity) {
+        this.capacity = capacity;
+        visits = new int[capacity];
+        raveVisits = new int[capacity];
+        firstChild = new int[capacity];
+        nChildren = new int[capacity];
+        moveId = new int[capacity];
+        moves = new int[capacity];
+        sums = new double[capacity];
+        raveSums = new double[capacity];
+        solved = new byte[capacity];
+    }
+
+    /**
+     * Removes all nodes, and creates a new root
+     */
+    public void reset(int player, Options options) {
+        if (options.imm && imValues == null)
+            imValues = new double[capacity];
+        rootPlayer = player;
+        size = 0;
+        newNode(-1, 0);
+    }
+
+    private int newNode(int id, int move) {
+        int n = size++;
+        visits[n] = 0;
+        raveVisits[n] = 0;
+        sums[n] = 0;
+        raveSums[n] = 0;
+        solved[n] = 0;
+        firstChild[n] = -1;
+        nChildren[n] = NOT_EXPANDED;
+        moveId[n] = id;
+        if (imValues != null)
+            imValues[n] = Integer.MIN_VALUE;
+        moves[n] = move;
+        return n;
+    }
+
+    /**
+     * Makes a single simulation from the root to a leaf, and backs up the result along the path.
+     */
+    public void MCTS(IBoard board, Options options) {
+        result[0] = 0;
+        result[1] = 0;
+        int node = 0, child, player = rootPlayer, depth = 0, nMoves = 0;
+        boolean leaf = false;
+        // Selection and expansion
+        while (true) {
+            assert board.getPlayerToMove() == player : "Incorrect player to move";
+            ensureCapacity(depth);
+            path[depth] = node;
+            players[depth] = player;
+            child = -1;
+            // First add some leafs if required
+            if (nChildren[node] == NOT_EXPANDED)
+                child = expand(node, player, board, options); // Expand returns any node that leads to a win
+
+            // The pool is full, play out from the node itself
+            if (child == FULL) {
+                selected[depth] = node;
+                simulate(node, board, depth, options);
+                leaf = true;
+                break;
+            }
+            // Select the best child, if we didn't find a winning position in the expansion
+            if (child == -1)
+                if (nChildren[node] == 0)
+                    child = node;
+                else
+                    child = select(node, player, options);
+
+            selected[depth] = child;
+            // (Solver) Check for proven win / loss / draw
+            if (solved[child] != 0)
+                break;
+            // Execute the move represented by the child
+            if (nChildren[node] != 0) {
+                if (options.RAVE)
+                    options.addRAVEMove(player, moveId[child], depth);
+                if (options.MAST)
+                    options.addMASTMove(player, moveId[child]);
+                board.doMove(moves[child]);
+                nMoves++;
+            }
+            // When a leaf is reached, play out
+            if (visits[child] == 0 || nChildren[node] == 0) {
+                simulate(child, board, depth, options);
+                break;
+            }
+            node = child;
+            player = 3 - player;
+            depth++;
+        }
+        // Back-propagation, the deepest node was played out, or its selected child is solved
+        for (int d = depth; d >= 0; d--) {
+            node = path[d];
+            child = selected[d];
+            player = players[d];
+            if (leaf && d == depth)
+                continue; // Already updated in simulate
+            if (solved[child] == 0 || d < depth) {
+                // Update the RAVE value of the siblings, if their move was played
+                if (d < depth && options.RAVE && solved[child] == 0) {
+                    int first = firstChild[node], last = first + nChildren[node];
+                    for (int c = first; c < last; c++) {
+                        if (c == child || solved[c] != 0)
+                            continue;
+                        if (options.isRAVEMove(player, moveId[c], d)) {
+                            raveSums[c] += result[0];
+                            raveVisits[c] += (int) options.nSamples;
+                        }
+                    }
+                }
+                if (solved[child] == 0)
+                    updateStats(node, player, result, (int) options.nSamples, options);
+            }
+            backupSolved(node, player, child, options);
+        }
+        // Take back the moves, so the caller can keep using the board
+        for (int i = 0; i < nMoves; i++)
+            board.undoMove();
+    }
+
+    private void simulate(int node, IBoard board, int depth, Options options) {
+        UCTNode.simulate(board, depth + 1, options, result);
+        visits[node] += (int) options.nSamples;
+        sums[node] += result[0];
+    }
+
+    /**
+     * (Solver) Backs up a proven win or loss of the selected child, replaces the result in place
+     */
+    private void backupSolved(int node, int player, int child, Options options) {
+        if (solved[child] == player) {
+            // One of my children is a proven win
+            solved[node] = (byte) player;
+            result[player - 1] = 1;
+            result[(3 - player) - 1] = -1;
+        } else if (solved[child] == 3 - player) {
+            result[player - 1] = -1;
+            result[(3 - player) - 1] = 1;
+            // Check if all children are a proven loss
+            int first = firstChild[node], last = first + nChildren[node];
+            for (int c = first; c < last; c++) {
+                if (solved[c] != 3 - player) {
+                    // Back up a single loss, if not all children are a loss
+                    updateStats(node, player, result, 1, options);
+                    return;
+                }
+            }
+            solved[node] = (byte) (3 - player); // I'm a proven win for the parent
+        }
+    }
+
+    private int expand(int node, int player, IBoard board, Options options) {
+        int winner = board.checkWin();
+        assert winner == IBoard.NONE_WIN || winner == IBoard.DRAW : "Trying to expand a proven node";
+        // Board is terminal, don't expand
+        if (winner != IBoard.NONE_WIN) {
+            nChildren[node] = 0;
+            return -1;
+        }
+        MoveList moveList = board.getExpandMoves();
+        int n = moveList.size(), winNode = -1;
+        if (size + n > capacity)
+            return FULL;
+
+        firstChild[node] = size;
+        double bestIm = Integer.MIN_VALUE;
+        moveParts = moveList.getParts();
+        for (int i = 0; i < n; i++) {
+            int move = moveList.getPacked(i);
+            newNode(board.getMoveId(move), move);
+        }
+        // The children are not played, the board computes their winner and evaluation
+        for (int child = firstChild[node]; child < firstChild[node] + n; child++) {
+            // Check for a winner, (Solver)
+            winner = board.checkWinAfter(moves[child]);
+            if (winner == IBoard.P1 || winner == IBoard.P2) {
+                if (winner == player)
+                    winNode = child;
+                solved[child] = (byte) winner;
+            }
+            if (options.imm) {
+                double imVal = board.evaluateAfter(moves[child], player);
+                imValues[child] = (player == 1) ? imVal : -imVal;
+                bestIm = Math.max(bestIm, imVal);
+            }
+        }
+        nChildren[node] = n;
+        // Back-propagate the best IM value
+        if (options.imm)
+            imValues[node] = (player == 1) ? bestIm : -bestIm;
+        return winNode;
+    }
+
+    private int select(int node, int player, Options options) {
+        int first = firstChild[node], last = first + nChildren[node];
+        // The same bounds as UCTNode.select, so that both trees search alike
+        double maxIm = Integer.MIN_VALUE, minIm = Integer.MIN_VALUE;
+        if (options.imm) {
+            double val;
+            // Check the highest and lowest evaluation for normalization
+            for (int c = first; c < last; c++) {
+                val = getImValue(c, player);
+                if (val > maxIm)
+                    maxIm = val;
+                if (val < minIm)
+                    minIm = val;
+            }
+        }
+        int selected = -1;
+        double max = Double.NEGATIVE_INFINITY, uctValue, np = visits[node];
+        SplittableRandom rng = Options.rng();
+        // Select a child according to the UCT Selection policy
+        for (int c = first; c < last; c++) {
+            double nc = visits[c], val = getValue(c, player);
+            // Always select a proven win
+            if (val == Integer.MAX_VALUE)
+                uctValue = Integer.MAX_VALUE - rng.nextDouble();
+            else if (val == Integer.MIN_VALUE)
+                uctValue = Integer.MIN_VALUE + rng.nextDouble();
+            else if (nc == 0) {
+                // First, visit all children at least once
+                uctValue = 100. + rng.nextDouble();
+            } else {
+                // Implicit minimax
+                if (options.imm && minIm != maxIm) {
+                    double imVal = (getImValue(c, player) - minIm) / (maxIm - minIm);
+                    val = (1. - options.imAlpha) * val + (options.imAlpha * imVal);
+                }
+                if (options.RAVE && raveVisits[c] > 1) {
+                    double beta = Math.sqrt(options.k / ((3 * np) + options.k));
+                    double rave = ((player == 1) ? 1 : -1) * raveSums[c] / raveVisits[c];
+                    val = (beta * rave) + ((1 - beta) * val);
+                }
+                // Compute the uct value with the (new) average value
+                uctValue = val + options.c * Math.sqrt(FastLog.log(np) / nc) + (rng.nextDouble() * 0.00001);
+            }
+            // Remember the highest UCT value
+            if (uctValue > max) {
+                selected = c;
+                max = uctValue;
+            }
+        }
+        return selected;
+    }
+
+    private void updateStats(int node, int player, double[] value, int n, Options options) {
+        visits[node] += n;
+        sums[node] += value[0];
+        // implicit minimax backups
+        if (options.imm && nChildren[node] > 0) {
+            double bestVal = Integer.MIN_VALUE;
+            int first = firstChild[node], last = first + nChildren[node];
+            for (int c = first; c < last; c++)
+                bestVal = Math.max(bestVal, getImValue(c, player));
+            imValues[node] = (player == 1) ? bestVal : -bestVal;
+        }
+    }
+
+    /**
+     * @return The value of the node with respect to the player
+     */
+    private double getValue(int node, int player) {
+        if (solved[node] != 0)
+            return (player == solved[node]) ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        if (visits[node] == 0)
+            return 0;
+        return (((player == 1) ? 1 : -1) * sums[node]) / visits[node];
+    }
+
+    private double getImValue(int node, int player) {
+        return ((player == 1) ? 1 : -1) * imValues[node];
+    }
+
+    private int[] getMove(int node) {
+        return MoveList.unpack(moves[node], moveParts);
+    }
+
+    public boolean isSolved() {
+        return solved[0] != 0;
+    }
+
+    /**
+     * @return The move of the root's child with the most visits, or a proven win
+     */
+    public int[] getBestMove() {
+        int first = firstChild[0], last = first + nChildren[0], best = -1;
+        double max = Double.NEGATIVE_INFINITY, value;
+        for (int c = first; c < last; c++) {
+            // If there are children with INF value, choose one of them
+            if (getValue(c, rootPlayer) == Integer.MAX_VALUE)
+                value = Integer.MAX_VALUE - Options.rng().nextDouble();
+            else if (getValue(c, rootPlayer) == Integer.MIN_VALUE)
+                value = Integer.MIN_VALUE + visits[c] + Options.rng().nextDouble();
+            else
+                value = visits[c];
+            if (value > max) {
+                max = value;
+                best = c;
+            }
+        }
+        return (best == -1) ? null : getMove(best);
+    }
+
+    /**
+     * Stores the visits of the root's two most visited children in top[0] and top[1]
+     */
+    public void getTopVisits(double[] top) {
+        top[0] = top[1] = 0;
+        int first = firstChild[0], last = first + nChildren[0];
+        for (int c = first; c < last; c++) {
+            if (visits[c] > top[0]) {
+                top[1] = top[0];
+                top[0] = visits[c];
+            } else if (visits[c] > top[1]) {
+                top[1] = visits[c];
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the children of the root, or null if the root was not expanded yet
+     */
+    public SearchSnapshot getSnapshot(int playouts) {
+        int first = firstChild[0], n = nChildren[0];
+        if (n <= 0)
+            return null;
+        int[][] moves = new int[n][];
+        int[] visits = new int[n];
+        for (int i = 0; i < n; i++) {
+            moves[i] = getMove(first + i);
+            visits[i] = this.visits[first + i];
+        }
+        return new SearchSnapshot(getBestMove(), moves, visits, playouts);
+    }
+
+    private void ensureCapacity(int depth) {
+        if (depth < path.length)
+            return;
+        int[] pathNew = new int[path.length * 2], selectedNew = new int[path.length * 2],
+                playersNew = new int[path.length * 2];
+        System.arraycopy(path, 0, pathNew, 0, path.length);
+        System.arraycopy(selected, 0, selectedNew, 0, selected.length);
+        System.arraycopy(players, 0, playersNew, 0, players.length);
+        path = pathNew;
+        selected = selectedNew;
+        players = playersNew;
+    }
+
+    /**
+     * @return Whether the children of the root were added, false if the pool was too small for them
+     */
+    public boolean isRootExpanded() {
+        return nChildren[0] != NOT_EXPANDED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String toString(IBoard board) {
+        StringBuilder sb = new StringBuilder();
+        int first = firstChild[0], last = first + nChildren[0];
+        for (int c = first; c < last; c++) {
+            sb.append(board.getMoveString(getMove(c)));
+            if (solved[c] != 0)
+                sb.append("\t :: solved win P").append(solved[c]);
+            else
+                sb.append("\t :: val_p1: ").append(State.df2.format(getValue(c, 1)))
+                        .append("\tn: ").append(State.df0.format(visits[c]));
+            if (raveVisits[c] > 0)
+                sb.append("\t :: RV_p1: ").append(State.df2.format(raveSums[c] / raveVisits[c]));
+            sb.append("\n");
+        }
+        sb.append("- nodes: ").append(State.df0.format(size)).append(" / ").append(State.df0.format(capacity));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package mcts.uct;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The state of a running search: the current best move, the visits of the root's children and the number of
+ * playouts so far. Snapshots are immutable and published by a search thread, so any thread can read them without
+ * locking. The move arrays are shared with the tree and should not be modified.
+ */
+public class SearchSnapshot {
+    public final int[] bestMove;
+    public final int[][] moves;
+    public final int[] visits;
+    public final int playouts;
+
+    SearchSnapshot(int[] bestMove, int[][] moves, int[] visits, int playouts) {
+        this.bestMove = bestMove;
+        this.moves = moves;
+        this.visits = visits;
+        this.playouts = playouts;
+    }
+
+    /**
+     * @return A snapshot of the children of the root, or null if the root was not expanded yet
+     */
+    static SearchSnapshot of(UCTNode root, int playouts) {
+        List<UCTNode> children = root.children;
+        UCTNode bestChild = root.getBestChild();
+        if (children == null || bestChild == null)
+            return null;
+        int[][] moves = new int[children.size()][];
+        int[] visits = new int[children.size()];
+        int i = 0;
+        for (UCTNode c : children) {
+            moves[i] = c.move;
+            visits[i] = (int) c.getVisits();
+            i++;
+        }
+        return new SearchSnapshot(bestChild.move, moves, visits, playouts);
+    }
+
+    /**
+     * Merges the snapshots of the trees of a root parallel search, by summing the visits of every move. The best move
+     * is the most visited one.
+     *
+     * @return The merged snapshot, or null until every thread has published its tree
+     */
+    static SearchSnapshot merge(AtomicReferenceArray<SearchSnapshot> trees, int playouts) {
+        int[][] moves = null;
+        int[] visits = null;
+        for (int i = 0; i < trees.length(); i++) {
+            SearchSnapshot tree = trees.get(i);
+            // The playouts count all threads, so the visits must too
+            if (tree == null)
+                return null;
+            // All trees have the same children at the root
+            if (moves == null) {
+                moves = tree.moves;
+                visits = new int[moves.length];
+            }
+            for (int j = 0; j < visits.length; j++)
+                visits[j] += tree.visits[j];
+        }
+        if (moves == null)
+            return null;
+        int best = 0;
+        for (int j = 1; j < visits.length; j++) {
+            if (visits[j] > visits[best])
+                best = j;
+        }
+        return new SearchSnapshot(moves[best], moves, visits, playouts);
+    }
+}
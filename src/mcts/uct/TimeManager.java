@@ -0,0 +1,175 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+/**
+ * Decides how long to search each move. Without a game clock every move gets options.nSimulations milliseconds, with
+ * a game clock (options.gameTime) the remaining time is split over the expected remaining moves, weighted by the
+ * branching factor. The search may then stop early when the best move is certain, or be extended once when the two best
+ * moves are close.
+ * <p>
+ * The search calls check() on an amortized schedule, so the clock is only read every few milliseconds. The threads of
+ * a tree parallel search share the tree and all call check(). The threads of a root parallel search each have a tree of
+ * their own, the first thread then decides on the combined trees, the others only follow with keepSearching().
+ */
+public class TimeManager {
+    private static final long CHECK_MILLIS = 5; // Target time between two clock reads
+    private static final int MIN_MOVES_LEFT = 10; // Always keep time for at least this many moves
+    private static final double MAX_FRACTION = .25; // Never spend more than this fraction of the remaining time on a move
+    private static final double CLOSE = .1; // The top two moves are close if their visits differ less than this
+    private static final double EXTEND = 1.; // Extend the search by this fraction of the budget
+    private static final double MIN_ELAPSED = .1; // Don't stop early before this fraction of the budget has passed
+    //
+    private final Options options;
+    private long used; // Time used in the game so far
+    private int moveNumber;
+    private double branchingSum;
+    // The current move
+    private long startTime, budget, maxEndTime;
+    private volatile long endTime;
+    private volatile boolean done;
+    private boolean extended, stoppedEarly;
+    private final double[] top = new double[2];
+
+    public TimeManager(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Starts a new game, with the full game clock
+     */
+    public void reset() {
+        used = 0;
+        moveNumber = 0;
+        branchingSum = 0;
+    }
+
+    /**
+     * Starts the clock for a new move and sets its time budget
+     */
+    public void startMove(IBoard board) {
+        startTime = System.currentTimeMillis();
+        done = extended = stoppedEarly = false;
+        moveNumber++;
+        if (options.gameTime <= 0) {
+            budget = options.nSimulations;
+            endTime = maxEndTime = startTime + budget;
+            return;
+        }
+        long remaining = Math.max(1, options.gameTime - used);
+        // Positions with more choices than the average so far in this game get more time
+        int branching = board.getExpandMoves().size();
+        branchingSum += branching;
+        double phase = Math.sqrt(branching / (branchingSum / moveNumber));
+        int movesLeft = Math.max(MIN_MOVES_LEFT, options.expectedMoves - moveNumber);
+        long maxBudget = (long) (MAX_FRACTION * remaining);
+        budget = Math.min(maxBudget, (long) (phase * remaining / movesLeft));
+        budget = Math.max(1, budget);
+        endTime = startTime + budget;
+        maxEndTime = startTime + Math.max(budget, maxBudget);
+    }
+
+    /**
+     * Called when the move is made, counts the time spent on the move against the game clock
+     */
+    public void endMove() {
+        used += System.currentTimeMillis() - startTime;
+    }
+
+    public int check(int simulations, UCTNode root) {
+        if (done)
+            return 0;
+        synchronized (top) {
+            root.getTopVisits(top);
+            return check(simulations, top[0], top[1]);
+        }
+    }
+
+    /**
+     * Decides for the threads of a root parallel search, on the visits of their trees combined
+     */
+    public int check(int simulations, SearchSnapshot trees) {
+        if (done)
+            return 0;
+        synchronized (top) {
+            top[0] = top[1] = 0;
+            for (int v : trees.visits) {
+                if (v > top[0]) {
+                    top[1] = top[0];
+                    top[0] = v;
+                } else if (v > top[1]) {
+                    top[1] = v;
+                }
+            }
+            return check(simulations, top[0], top[1]);
+        }
+    }
+
+    /**
+     * For the threads of a root parallel search that don't decide: searches until the deciding thread stops, or the
+     * time is up even if the search was extended
+     *
+     * @return The number of playouts until the next check, or 0 if the search should stop
+     */
+    public int keepSearching(int simulations) {
+        long now = System.currentTimeMillis();
+        if (done || now >= maxEndTime)
+            return 0;
+        double rate = simulations / (double) Math.max(1, now - startTime);
+        return (int) Math.max(1, rate * CHECK_MILLIS);
+    }
+
+    /**
+     * Stops the search of all threads
+     */
+    public void stop() {
+        done = true;
+    }
+
+    public int check(int simulations, NodePool pool) {
+        if (done)
+            return 0;
+        synchronized (top) {
+            pool.getTopVisits(top);
+            return check(simulations, top[0], top[1]);
+        }
+    }
+
+    /**
+     * Reads the clock, and decides whether the search should continue.
+     *
+     * @param simulations The number of playouts made by the calling thread
+     * @param best        The visits of the most visited child of the root
+     * @param second      The visits of the second most visited child of the root
+     * @return The number of playouts until the next check, or 0 if the search should stop
+     */
+    private int check(int simulations, double best, double second) {
+        long now = System.currentTimeMillis();
+        long elapsed = Math.max(1, now - startTime);
+        if (now >= endTime) {
+            // Spend some extra time if the two best moves are close
+            if (options.gameTime > 0 && !extended && best > 0 && second >= (1. - CLOSE) * best && now < maxEndTime) {
+                extended = true;
+                endTime = Math.min(maxEndTime, now + (long) (EXTEND * budget));
+            } else {
+                done = true;
+                return 0;
+            }
+        }
+        // Playouts per millisecond of this thread, and at the root, of every tree searching thread
+        double rate = simulations / (double) elapsed;
+        double rootRate = rate * ((options.treeParallel || !options.leafParallel) ? options.nThreads : 1);
+        // Stop early if the second best move cannot overtake the best one in the remaining time, once the rate is known
+        if (options.gameTime > 0 && elapsed >= MIN_ELAPSED * budget && best - second > rootRate * (endTime - now)) {
+            stoppedEarly = done = true;
+            return 0;
+        }
+        return (int) Math.max(1, Math.min(rate * CHECK_MILLIS, rate * (endTime - now)));
+    }
+
+    public String toString() {
+        return "budget: " + budget + " ms" + (extended ? ", extended" : "") + (stoppedEarly ? ", stopped early" : "")
+                + ((options.gameTime > 0) ? ", game time used: " + used + " of " + options.gameTime + " ms" : "");
+    }
+}
@@ -2,53 +2,81 @@ package mcts.uct;
 
 import framework.*;
 import mcts.State;
-import mcts.TransposTable;
+import mcts.IState;
+import mcts.ITransposTable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class UCTNode {
+    // Atomic access for tree parallelisation, several threads descend the same tree
+    private static final VarHandle RAVE_VISITS, VIRTUAL_VISITS, RAVE_VALUE = MethodHandles.arrayElementVarHandle(double[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            RAVE_VISITS = l.findVarHandle(UCTNode.class, "RAVEVisits", int.class);
+            VIRTUAL_VISITS = l.findVarHandle(UCTNode.class, "virtualVisits", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public final int player;
     public final int[] move;
     private final Options options;
-    private final TransposTable tt;
+    private final ITransposTable tt;
     private final long hash;
-    public List<UCTNode> children;
+    public volatile List<UCTNode> children;
     // For debug only
     public String boardString;
     public Plot.Data timeSeries;
-    public State state;
-    private boolean expanded = false, simulated = false;
-    private double[] RAVEvalue = {0, 0};
-    private int RAVEVisits = 0;
+    public volatile IState state;
+    private volatile boolean expanded = false, simulated = false;
+    private final double[] RAVEvalue = {0, 0};
+    private volatile int RAVEVisits = 0;
+    // The number of threads currently searching below this node
+    private volatile int virtualVisits = 0;
 
     /**
      * Constructor for the root
      */
-    public UCTNode(int player, Options options, long hash, TransposTable tt) {
+    public UCTNode(int player, Options options, long hash, ITransposTable tt) {
         this.player = player;
         this.options = options;
         this.tt = tt;
         this.hash = hash;
-        this.state = tt.getState(hash, true);
         this.move = null;
+        getState(true);
     }
 
     /**
      * Constructor for internal node
      */
-    public UCTNode(int player, int[] move, Options options, long hash, TransposTable tt) {
+    public UCTNode(int player, int[] move, Options options, long hash, ITransposTable tt) {
         this.player = player;
         this.move = move;
         this.options = options;
         this.tt = tt;
         this.hash = hash;
-        this.state = tt.getState(hash, true);
+        getState(true);
         if (Options.debug)
             timeSeries = Plot.data();
     }
 
-    public double[] MCTS(IBoard board, int depth) {
+    /**
+     * Makes a single simulation from this node to a leaf
+     *
+     * @param options the options of the calling search thread, these hold its RAVE and MAST tables. Other settings
+     *                are equal to those of the node.
+     */
+    public double[] MCTS(IBoard board, int depth, Options options) {
         assert board.getPlayerToMove() == player : "Incorrect player to move";
         // TODO Build in some more assertions here
         UCTNode child = null;
@@ -66,8 +94,12 @@ public class UCTNode {
         double[] result = {0, 0};
         // (Solver) Check for proven win / loss / draw
         if (!child.isSolved()) {
+            // Discourage other threads from selecting the same path
+            if (options.treeParallel)
+                VIRTUAL_VISITS.getAndAdd(child, 1);
             // Execute the move represented by the child
-            if (!isTerminal()) {
+            boolean moved = !isTerminal();
+            if (moved) {
                 if (options.RAVE)
                     options.addRAVEMove(player, board.getMoveId(child.move), depth);
                 if (options.MAST)
@@ -77,21 +109,11 @@ public class UCTNode {
             }
             // When a leaf is reached return the result of the playout
             if (!child.simulated || isTerminal()) {
-                double[] poRes;
-                options.nSamples = Math.round(options.nSamples);
-                for (int i = 0; i < (int) options.nSamples; i++) {
-                    if (options.nSamples > 1)
-                        poRes = child.playOut(board.clone(), depth + 1);
-                    else
-                        poRes = child.playOut(board, depth + 1); // WARN a single copy of the board is used
-
-                    result[0] += poRes[0];
-                    result[1] += poRes[1];
-                }
+                simulate(board, depth + 1, options, result);
                 child.updateStats(result, (int) options.nSamples);
                 child.simulated = true;
             } else {
-                result = child.MCTS(board, depth + 1);
+                result = child.MCTS(board, depth + 1, options);
                 // Update the RAVE value if this move was played
                 if (options.RAVE && !child.isSolved()) {
                     for (UCTNode c : children) {
@@ -105,64 +127,188 @@ public class UCTNode {
                     }
                 }
             }
+            // Take back the move, so the caller can keep using the board
+            if (moved)
+                board.undoMove();
             if (!child.isSolved())
                 updateStats(result, (int) options.nSamples);
+            if (options.treeParallel)
+                VIRTUAL_VISITS.getAndAdd(child, -1);
             // For displaying the time-series charts
-            if (Options.debug && depth == 0) {
+            if (Options.debug && depth == 0 && !options.treeParallel) {
                 for (int i = 0; i < (int) options.nSamples; i++) {
                     child.timeSeries.xy(child.getVisits() - i, child.getValue(1));
                 }
             }
         }
         //
+        backupSolved(child, result);
+        assert (result[0] > Integer.MIN_VALUE) && (result[1] > Integer.MIN_VALUE) : "Result not initialized";
+        return result;
+    }
+
+    /**
+     * Makes a single simulation from this node to a leaf, like MCTS, but descends the tree in a loop and records the
+     * path in the given buffers instead of recursing. The result is then backed up along the path, in place.
+     *
+     * @param options the options of the calling search thread
+     * @return the result of the simulation, with respect to both players
+     */
+    public double[] iterativeMCTS(IBoard board, UCTPath path, Options options) {
+        double[] result = path.result;
+        result[0] = 0;
+        result[1] = 0;
+        UCTNode node = this, child;
+        int depth = 0, nMoves = 0;
+        // Selection and expansion
+        while (true) {
+            assert board.getPlayerToMove() == node.player : "Incorrect player to move";
+            path.ensureCapacity(depth);
+            child = null;
+            // First add some leafs if required
+            if (!node.expanded)
+                child = node.expand(board); // Expand returns any node that leads to a win
+
+            // Select the best child, if we didn't find a winning position in the expansion
+            if (child == null)
+                if (node.isTerminal())
+                    child = node;
+                else
+                    child = node.select();
+
+            path.nodes[depth] = node;
+            path.selected[depth] = child;
+            path.searched[depth] = !child.isSolved();
+            // (Solver) Check for proven win / loss / draw
+            if (!path.searched[depth])
+                break;
+            // Discourage other threads from selecting the same path
+            if (options.treeParallel)
+                VIRTUAL_VISITS.getAndAdd(child, 1);
+            // Execute the move represented by the child
+            if (!node.isTerminal()) {
+                if (options.RAVE)
+                    options.addRAVEMove(node.player, board.getMoveId(child.move), depth);
+                if (options.MAST)
+                    options.addMASTMove(node.player, board.getMoveId(child.move));
+                board.doMove(child.move);
+                nMoves++;
+                assert board.hash() == child.hash : "Board hash is incorrect";
+            }
+            // When a leaf is reached, play out
+            if (!child.simulated || node.isTerminal()) {
+                simulate(board, depth + 1, options, result);
+                child.updateStats(result, (int) options.nSamples);
+                child.simulated = true;
+                break;
+            }
+            node = child;
+            depth++;
+        }
+        // Back-propagation, the deepest node was either played out, or its selected child is solved
+        for (int d = depth; d >= 0; d--) {
+            node = path.nodes[d];
+            child = path.selected[d];
+            if (path.searched[d]) {
+                // Update the RAVE value of the siblings, if their move was played
+                if (d < depth && options.RAVE && !child.isSolved()) {
+                    for (UCTNode c : node.children) {
+                        if (c.equals(child) || c.isSolved())
+                            continue;
+
+                        if (options.isRAVEMove(node.player, board.getMoveId(c.move), d)) {
+                            c.updateRAVE(result, (int) options.nSamples);
+                        }
+                    }
+                }
+                if (!child.isSolved())
+                    node.updateStats(result, (int) options.nSamples);
+                if (options.treeParallel)
+                    VIRTUAL_VISITS.getAndAdd(child, -1);
+                // For displaying the time-series charts
+                if (Options.debug && d == 0 && !options.treeParallel) {
+                    for (int i = 0; i < (int) options.nSamples; i++) {
+                        child.timeSeries.xy(child.getVisits() - i, child.getValue(1));
+                    }
+                }
+            }
+            node.backupSolved(child, result);
+        }
+        path.clear(depth);
+        // Take back the moves, so the caller can keep using the board
+        for (int i = 0; i < nMoves; i++)
+            board.undoMove();
+        assert (result[0] > Integer.MIN_VALUE) && (result[1] > Integer.MIN_VALUE) : "Result not initialized";
+        return result;
+    }
+
+    /**
+     * (Solver) Backs up a proven win or loss of the selected child, replaces the result in place
+     */
+    private void backupSolved(UCTNode child, double[] result) {
         if (child.getValue(player) == Integer.MAX_VALUE) {
             // One of my children is a proven win
             setSolved(player);
             // Backprop a win
-            result = new double[2];
             result[player - 1] = 1;
             result[(3 - player) - 1] = -1;
-            return result;
         } else if (child.getValue(player) == Integer.MIN_VALUE) {
-            result = new double[2];
             result[player - 1] = -1;
             result[(3 - player) - 1] = 1;
             // Check if all children are a proven loss
             for (UCTNode c : children) {
                 if (c.getValue(player) != Integer.MIN_VALUE) {
-                    // Return a single loss, if not all children are a loss
+                    // Back up a single loss, if not all children are a loss
                     updateStats(result, 1);
-                    return result;
+                    return;
                 }
             }
             setSolved(3 - player); // I'm a proven win for the parent
-            return result;
         }
-        assert (result[0] > Integer.MIN_VALUE) && (result[1] > Integer.MIN_VALUE) : "Result not initialized";
-        return result;
     }
 
-    private UCTNode expand(IBoard board) {
+    /**
+     * Synchronized so that only one thread expands a node, other threads wait and then select among the children.
+     */
+    private synchronized UCTNode expand(IBoard board) {
+        // Another thread expanded the node in the meantime
+        if (expanded)
+            return null;
         // If one of the nodes is a win, we don't have to select
         UCTNode winNode = null;
-        MoveList moves = board.getExpandMoves();
-        if (children == null)
-            children = new LinkedList<>();
-
         int winner = board.checkWin();
         assert winner == IBoard.NONE_WIN || winner == IBoard.DRAW : "Trying to expand a proven node";
         // Board is terminal, don't expand
-        if (winner != IBoard.NONE_WIN)
+        if (winner != IBoard.NONE_WIN) {
+            if (children == null)
+                children = new LinkedList<>();
             return null;
+        }
 
-        int[] move;
+        MoveList moves = board.getExpandMoves();
+        // The children are only published when complete
+        List<UCTNode> children = new LinkedList<>();
+
+        int n = moves.size();
+        int[][] move = new int[n][];
+        int[] packed = new int[n];
+        for (int i = 0; i < n; i++) {
+            move[i] = moves.get(i);
+            packed[i] = moves.getPacked(i);
+        }
+        // The child board is only made to print it, otherwise the board computes its hash, winner and evaluation
+        boolean play = Options.debug;
         double best_imVal = Integer.MIN_VALUE;
         // Add all moves as children to the current node
-        for (int i = 0; i < moves.size(); i++) {
-            move = moves.get(i);
-            IBoard tempBoard = board.clone();
-            tempBoard.doMove(move);
-            UCTNode child = new UCTNode(3 - player, move, options, tempBoard.hash(), tt);
+        for (int i = 0; i < n; i++) {
+            IBoard tempBoard = null;
+            if (play) {
+                // Make the move on the board itself, it is taken back below
+                tempBoard = board;
+                tempBoard.doMove(packed[i]);
+            }
+            long hash = play ? tempBoard.hash() : board.hashAfter(packed[i]);
+            UCTNode child = new UCTNode(3 - player, move[i], options, hash, tt);
             if (Options.debug)
                 child.boardString = tempBoard.toString();
             // We've expanded an already proven won node
@@ -170,7 +316,7 @@ public class UCTNode {
                 winNode = child;
             else {
                 // Check for a winner, (Solver)
-                winner = tempBoard.checkWin();
+                winner = play ? tempBoard.checkWin() : board.checkWinAfter(packed[i]);
                 if (winner == IBoard.P1 || winner == IBoard.P2) {
                     if (winner == player)
                         winNode = child;
@@ -181,14 +327,17 @@ public class UCTNode {
             if (options.imm) {
                 double imVal = 0;
                 if (child.getImValue(player) == Integer.MIN_VALUE) {
-                    imVal = tempBoard.evaluate(player);
+                    imVal = play ? tempBoard.evaluate(player) : board.evaluateAfter(packed[i], player);
                     child.setImValue(imVal, player);
                 } else // IM Value was already determined elsewhere in the tree
                     imVal = child.getImValue(player);
                 best_imVal = Math.max(best_imVal, imVal);
             }
+            if (play)
+                board.undoMove();
             children.add(child);
         }
+        this.children = children;
         expanded = true;
         // Back-propagate the best IM value
         if (options.imm)
@@ -213,19 +362,26 @@ public class UCTNode {
 
         UCTNode selected = null;
         double max = Double.NEGATIVE_INFINITY;
-        double uctValue, np = getVisits();
+        // The statistics of this node may have been replaced in the transposition table
+        double uctValue, np = Math.max(1, getVisits());
+        SplittableRandom rng = Options.rng();
         // Select a child according to the UCT Selection policy
         for (UCTNode c : children) {
-            double nc = c.getVisits(), val = c.getValue(player);
+            double nc = c.getVisits(), val = c.getValue(player), vl = c.virtualVisits;
             // Always select a proven win
             if (val == Integer.MAX_VALUE)
-                uctValue = Integer.MAX_VALUE - Options.r.nextDouble();
+                uctValue = Integer.MAX_VALUE - rng.nextDouble();
             else if (val == Integer.MIN_VALUE)
-                uctValue = Integer.MIN_VALUE + Options.r.nextDouble();
-            else if (nc == 0) {
+                uctValue = Integer.MIN_VALUE + rng.nextDouble();
+            else if (nc + vl == 0) {
                 // First, visit all children at least once
-                uctValue = 100. + Options.r.nextDouble();
+                uctValue = 100. + rng.nextDouble();
             } else {
+                // Virtual loss, count the threads searching below the child as lost visits
+                if (vl > 0) {
+                    val = (val * nc - options.virtualLoss * vl) / (nc + vl);
+                    nc += vl;
+                }
                 // Linear regression
                 if (options.regression) {
                     val = c.getValue(player, options.regForecastSteps, options.regAlpha); // TODO, this could also be nSamples
@@ -241,7 +397,7 @@ public class UCTNode {
                     val = (beta * c.getRAVE(player)) + ((1 - beta) * val);
                 }
                 // Compute the uct value with the (new) average value
-                uctValue = val + options.c * Math.sqrt(FastLog.log(np) / nc) + (Options.r.nextDouble() * 0.00001);
+                uctValue = val + options.c * Math.sqrt(FastLog.log(np) / nc) + (rng.nextDouble() * 0.00001);
             }
             // Remember the highest UCT value
             if (uctValue > max) {
@@ -252,14 +408,35 @@ public class UCTNode {
         return selected;
     }
 
-    private double[] playOut(IBoard board, int depth) {
+    /**
+     * Plays out options.nSamples games from the board, and adds their results to result
+     */
+    static void simulate(IBoard board, int depth, Options options, double[] result) {
+        double[] poRes;
+        options.nSamples = Math.round(options.nSamples);
+        if (options.leafParallel && options.nSamples > 1) {
+            poRes = playOutParallel(board, depth, options);
+            result[0] += poRes[0];
+            result[1] += poRes[1];
+        } else {
+            for (int i = 0; i < (int) options.nSamples; i++) {
+                poRes = playOut(board, depth, options); // The board is restored after the playout
+
+                result[0] += poRes[0];
+                result[1] += poRes[1];
+            }
+        }
+    }
+
+    private static double[] playOut(IBoard board, int depth, Options options) {
         int winner = board.checkWin(), nMoves = 0, moveIndex, pl;
         assert winner == IBoard.NONE_WIN || winner == IBoard.DRAW : "Board in won position in playout.";
         // int lastMove, winMove;
-        int[] move;
+        int move, moveId; // Packed moves, see MoveList.pack
         boolean interrupted = false;
         MoveList moves;
         double mastMax, mastVal, mastVis;
+        SplittableRandom rng = Options.rng();
         board.startPlayout();
 
         do {
@@ -268,16 +445,17 @@ public class UCTNode {
             // No more moves to be made
             if (moves.size() == 0)
                 break;
-            moveIndex = Options.r.nextInt(moves.size());
-            if (options.MAST && Options.r.nextDouble() < (1. - options.epsilon)) {
+            moveIndex = rng.nextInt(moves.size());
+            if (options.MAST && rng.nextDouble() < (1. - options.epsilon)) {
                 mastMax = Double.NEGATIVE_INFINITY;
                 // Select the move with the highest MAST value
                 for (int i = 0; i < moves.size(); i++) {
-                    mastVis = options.getMASTVisits(pl, board.getMoveId(moves.get(i)));
-                    mastVal = options.getMASTValue(pl, board.getMoveId(moves.get(i)));
+                    moveId = board.getMoveId(moves.getPacked(i));
+                    mastVis = options.getMASTVisits(pl, moveId);
+                    mastVal = options.getMASTValue(pl, moveId);
                     // Make sure to have visited all moves first
                     if (mastVis < 5)
-                        mastVal = 1. + Options.r.nextDouble();
+                        mastVal = 1. + rng.nextDouble();
                     // If bigger, we have a winner, if equal, flip a coin
                     if (mastVal > mastMax) {
                         mastMax = mastVal;
@@ -286,7 +464,7 @@ public class UCTNode {
                 }
             }
 
-            move = moves.get(moveIndex);
+            move = moves.getPacked(moveIndex);
 
             ++nMoves;
 
@@ -326,10 +504,45 @@ public class UCTNode {
 
         if (options.MAST)
             options.updateMASTMoves(score);
-
+        // Take back the moves of the playout
+        for (int i = 0; i < nMoves; i++)
+            board.undoMove();
         return score;
     }
 
+    /**
+     * Leaf parallelisation, plays out the samples on the sample threads and sums their results. The calling thread
+     * plays out the last sample itself, on the given board.
+     */
+    private static double[] playOutParallel(IBoard board, int depth, Options options) {
+        int nSamples = (int) options.nSamples;
+        List<Future<double[]>> results = new ArrayList<>(nSamples - 1);
+        // The copies are taken from the pool of the calling thread, which waits for the samples to finish
+        IBoard[] sBoards = new IBoard[nSamples - 1];
+        for (int i = 0; i < nSamples - 1; i++) {
+            IBoard sBoard = sBoards[i] = BoardPool.copy(board);
+            Options sOptions = options.sampleCopy();
+            SplittableRandom sRng = Options.rng().split();
+            results.add(options.samplePool.submit(() -> {
+                Options.setRng(sRng);
+                return playOut(sBoard, depth, sOptions);
+            }));
+        }
+        double[] result = playOut(board, depth, options), poRes;
+        try {
+            for (Future<double[]> r : results) {
+                poRes = r.get();
+                result[0] += poRes[0];
+                result[1] += poRes[1];
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Playout failed", e);
+        }
+        for (int i = nSamples - 2; i >= 0; i--)
+            BoardPool.release(sBoards[i]);
+        return result;
+    }
+
     public UCTNode getBestChild() {
         if (children == null)
             return null;
@@ -338,9 +551,9 @@ public class UCTNode {
         for (UCTNode c : children) {
             // If there are children with INF value, choose one of them
             if (c.getValue(player) == Integer.MAX_VALUE)
-                value = Integer.MAX_VALUE - Options.r.nextDouble();
+                value = Integer.MAX_VALUE - Options.rng().nextDouble();
             else if (c.getValue(player) == Integer.MIN_VALUE)
-                value = Integer.MIN_VALUE + c.getVisits() + Options.r.nextDouble();
+                value = Integer.MIN_VALUE + c.getVisits() + Options.rng().nextDouble();
             else {
                 value = c.getVisits();
             }
@@ -352,12 +565,35 @@ public class UCTNode {
         return bestChild;
     }
 
+    /**
+     * Stores the visits of the two most visited children in top[0] and top[1]
+     */
+    public void getTopVisits(double[] top) {
+        top[0] = top[1] = 0;
+        List<UCTNode> children = this.children;
+        if (children == null)
+            return;
+        for (UCTNode c : children) {
+            double v = c.getVisits();
+            if (v > top[0]) {
+                top[1] = top[0];
+                top[0] = v;
+            } else if (v > top[1]) {
+                top[1] = v;
+            }
+        }
+    }
+
     private void updateStats(double[] value, int n) {
         assert value[0] > Integer.MIN_VALUE && value[1] > Integer.MIN_VALUE : "Wrong values in updateStats";
 
-        if (state == null)
-            state = tt.getState(hash, false);
-        //
+        IState state = getState(false);
+        // Proven by another thread in the meantime
+        if (options.treeParallel && state.isSolved())
+            return;
+        // Without tree parallelisation a solved position is never searched
+        assert options.treeParallel || !state.isSolved() : "UpdateStats called on solved position!";
+        state.touch(tt.getGeneration());
         state.updateStats(value, n, options.regression, options.cusum);
 
         // implicit minimax backups
@@ -372,8 +608,7 @@ public class UCTNode {
     }
 
     public boolean isSolved() {
-        if (state == null)
-            state = tt.getState(hash, true);
+        IState state = getState(true);
 
         if (state == null)
             return false;
@@ -382,15 +617,13 @@ public class UCTNode {
     }
 
     private void setSolved(int player) {
-        if (state == null)
-            state = tt.getState(hash, false);
-
+        IState state = getState(false);
+        state.touch(tt.getGeneration());
         state.setSolved(player);
     }
 
     private double getImValue(int player) {
-        if (state == null)
-            state = tt.getState(hash, true);
+        IState state = getState(true);
 
         if (state == null)
             return Integer.MIN_VALUE;
@@ -399,22 +632,19 @@ public class UCTNode {
     }
 
     private void setImValue(double imValue, int player) {
-        if (state == null)
-            state = tt.getState(hash, false);
-
-        state.setImValue(imValue, player);
+        getState(false).setImValue(imValue, player);
     }
 
     /**
      * @return The value of this node with respect to the parent
      */
     public double getValue(int player) {
-        if (state == null)
-            state = tt.getState(hash, true);
+        IState state = getState(true);
 
         if (state == null)
             return 0;
 
+        state.touch(tt.getGeneration());
         return state.getMean(player);
     }
 
@@ -422,19 +652,19 @@ public class UCTNode {
      * @return The value of this node with respect to the parent
      */
     public double getValue(int player, int regSteps, double regAlpha) {
-        if (state == null)
-            state = tt.getState(hash, true);
+        IState state = getState(true);
 
         if (state == null)
             return 0;
 
+        state.touch(tt.getGeneration());
         return state.getMean(player, regSteps, regAlpha);
     }
 
     public void updateRAVE(double[] values, int n) {
-        RAVEvalue[0] += values[0];
-        RAVEvalue[1] += values[1];
-        RAVEVisits += n;
+        RAVE_VALUE.getAndAdd(RAVEvalue, 0, values[0]);
+        RAVE_VALUE.getAndAdd(RAVEvalue, 1, values[1]);
+        RAVE_VISITS.getAndAdd(this, n);
     }
 
     public double getRAVE(int player) {
@@ -445,8 +675,7 @@ public class UCTNode {
     }
 
     public double getVisits() {
-        if (state == null)
-            state = tt.getState(hash, true);
+        IState state = getState(true);
 
         if (state == null)
             return 0.;
@@ -454,6 +683,47 @@ public class UCTNode {
         return state.getVisits();
     }
 
+    /**
+     * Looks up the state of this node in the transposition table, if it is not known yet. Once found the state is kept,
+     * so a handle of the primitive table is allocated once per node, not on every access.
+     *
+     * @param existingOnly Only return a state if it is already in the table, don't create one
+     */
+    private IState getState(boolean existingOnly) {
+        IState state = this.state;
+        if (state == null) {
+            // Tables that are not thread-safe are locked when shared
+            if (options.treeParallel && !tt.isConcurrent()) {
+                synchronized (tt) {
+                    state = tt.getState(hash, existingOnly);
+                }
+            } else {
+                state = tt.getState(hash, existingOnly);
+            }
+            this.state = state;
+        }
+        return state;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Marks the states of this node and its subtree as used in the current generation of the table, when the subtree
+     * is kept for the next search
+     */
+    public void touch() {
+        IState state = this.state;
+        if (state != null)
+            state.touch(tt.getGeneration());
+        List<UCTNode> children = this.children;
+        if (children != null) {
+            for (UCTNode c : children)
+                c.touch();
+        }
+    }
+
     public boolean isTerminal() {
         return children != null && children.size() == 0;
     }
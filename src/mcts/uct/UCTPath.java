@@ -0,0 +1,35 @@
+package mcts.uct;
+
+/**
+ * Reusable buffers for the iterative (non-recursive) simulation in UCTNode, one per search thread.
+ */
+class UCTPath {
+    // The nodes on the path from the root, and the child selected at each of them
+    UCTNode[] nodes = new UCTNode[64], selected = new UCTNode[64];
+    // Whether the selected child was not yet solved, i.e. it was actually searched
+    boolean[] searched = new boolean[64];
+    // The result that is backed up along the path, updated in place
+    final double[] result = new double[2];
+
+    void ensureCapacity(int depth) {
+        if (depth < nodes.length)
+            return;
+        int size = nodes.length * 2;
+        UCTNode[] nodesNew = new UCTNode[size], selectedNew = new UCTNode[size];
+        boolean[] searchedNew = new boolean[size];
+        System.arraycopy(nodes, 0, nodesNew, 0, nodes.length);
+        System.arraycopy(selected, 0, selectedNew, 0, selected.length);
+        System.arraycopy(searched, 0, searchedNew, 0, searched.length);
+        nodes = nodesNew;
+        selected = selectedNew;
+        searched = searchedNew;
+    }
+
+    void clear(int depth) {
+        // Don't hold on to nodes that may be removed from the tree
+        for (int i = 0; i <= depth; i++) {
+            nodes[i] = null;
+            selected[i] = null;
+        }
+    }
+}
@@ -1,84 +1,100 @@
 package mcts.uct;
 
 import framework.*;
+import mcts.ConcurrentTransposTable;
+import mcts.ITransposTable;
+import mcts.OpenTransposTable;
 import mcts.State;
 import mcts.TransposTable;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 public class UCTPlayer implements AIPlayer {
     public UCTNode root;
     public IBoard board;
     private MoveCallback moveCallback;
-    private TransposTable tt = new TransposTable();
+    private ITransposTable tt;
+    // Root parallelisation, a transposition table per thread
+    private ITransposTable[] workerTT;
+    private ExecutorService pool;
+    // Leaf parallelisation, separate from the search threads, which wait for their samples
+    private ExecutorService samplePool;
+    // Alternative tree store
+    private NodePool nodePool;
+    // Tree reuse, the node of the move played, the rest of the previous tree is freed
+    private UCTNode playedNode;
+    // Pondering, searching on the opponent's time
+    private Thread ponderThread;
+    private volatile boolean stop = false;
+    // The latest state of the search, for other threads
+    private volatile SearchSnapshot snapshot;
+    // The playouts of all search threads of the current move, and the trees of a root parallel search
+    private final LongAdder playouts = new LongAdder();
+    private volatile AtomicReferenceArray<SearchSnapshot> threadSnapshots;
+    private TimeManager timeManager;
+    // The random stream of this player, every search splits its own streams from it
+    private SplittableRandom rng;
     private int[] bestMove;
     private Options options;
 
     @Override
     public void getMove(IBoard board) {
+        stopPondering();
         System.gc();
         if (options == null)
             throw new RuntimeException("MCTS Options not set.");
-        root = new UCTNode(board.getPlayerToMove(), options, board.hash(), tt);
-        int simulations = 0;
-        double nSamples = options.nSamples;
+        int simulations;
         long startT = System.currentTimeMillis();
-        options.resetMAST(board.getMaxMoveId());
-
-        if (!options.fixedSimulations) {
-            long endTime = System.currentTimeMillis() + options.nSimulations;
-            // Run the MCTS algorithm while time allows it
-            while (true) {
-
-                // Reset nSamples when doing heurisic resampling
-                if (options.resample)
-                    options.nSamples = nSamples;
-
-                simulations += options.nSamples;
-
-                if (System.currentTimeMillis() >= endTime)
-                    break;
+        timeManager.startMove(board);
+        UCTNode bestChild = null;
+        snapshot = null;
+        playouts.reset();
+        // The calling thread searches with a stream of its own, worker threads get one split from it
+        Options.setRng(rng.split());
 
-                if (Options.debug && options.nSamples == 1)
-                    options.checkRaveMoves();
+        if (options.leafParallel)
+            options.samplePool = getSamplePool();
 
-                options.resetRAVE(board.getMaxMoveId());
-                // Make one simulation from root to leaf.
-                root.MCTS(board.clone(), 0);
-                // Check if the root is proven
-                if (root.isSolved())
-                    break; // Break if you find a winning move
-            }
+        // The pool may be too small for the children of the root, the tree is then made of UCTNode objects
+        simulations = options.nodePool ? poolSearch(board) : -1;
+        if (simulations >= 0) {
+            // Searched in the pool
+        } else if (options.nThreads > 1 && !options.treeParallel && !options.leafParallel) {
+            simulations = rootParallelSearch(board);
         } else {
-            // Run as many simulations as allowed
-            while (simulations < options.nSimulations) {
-
-                // Reset nSamples when doing heurisic resampling
-                if (options.resample)
-                    options.nSamples = nSamples;
-
-                simulations += options.nSamples;
-
-                if (Options.debug && options.nSamples == 1)
-                    options.checkRaveMoves();
-
-                options.resetRAVE(board.getMaxMoveId());
-                // Make one simulation from root to leaf.
-                root.MCTS(board.clone(), 0);
-                if (root.isSolved())
-                    break; // Break if you find a winning move
-            }
+            root = (options.reuseTree || options.ponder) ? findReusableRoot(board) : null;
+            if (options.reuseTree || options.ponder)
+                System.out.println("- reused tree: " + State.df0.format((root != null) ? root.getVisits() : 0) + " visits");
+            if (root == null)
+                root = new UCTNode(board.getPlayerToMove(), options, board.hash(), tt);
+            if (options.nThreads > 1 && options.treeParallel)
+                simulations = treeParallelSearch(board);
+            else
+                simulations = search(root, board, options, options.nSimulations, 0);
+            // Return the best move found
+            bestChild = root.getBestChild();
+            bestMove = bestChild.move;
+            snapshot = SearchSnapshot.of(root, simulations);
         }
         long endT = System.currentTimeMillis();
-        // Return the best move found
-        UCTNode bestChild = root.getBestChild();
-        bestMove = bestChild.move;
-
 
         // show information on the best move
-        if (Options.debug) {
+        if (Options.debug && bestChild != null) {
             System.out.println("-------- < uct debug > ----------");
             for (UCTNode uctNode : root.children) {
                 if (uctNode == bestChild)
@@ -90,7 +106,10 @@ public class UCTPlayer implements AIPlayer {
             System.out.println("- # of playouts: " + State.df0.format(simulations));
             System.out.print("- searched for: " + State.df0.format((endT - startT) / 1000.) + " sec. ");
             System.out.println(State.df0.format((int) Math.round((1000. * simulations) / (endT - startT))) + " ppsec.");
-            System.out.println("- collisions: " + State.df0.format(tt.collisions) + ", tps: " + State.df0.format(tt.positions));
+            System.out.println("- collisions: " + State.df0.format(tt.getCollisions()) + ", tps: " + State.df0.format(tt.getPositions()));
+            if (!Double.isNaN(tt.getFillRate()))
+                System.out.println("- tt fill rate: " + State.df2.format(tt.getFillRate()));
+            System.out.println("- time: " + timeManager);
             System.out.println("- MaxEval: " + Options.maxEval);
             System.out.println("-------- </uct debug > ----------");
             if(options.regression) {
@@ -112,9 +131,10 @@ public class UCTPlayer implements AIPlayer {
                         negcusum.xy(x, cSum.getNegCusum());
                     }
                     Plot.Data regressor = Plot.data();
-                    double rs = c.getVisits() - c.state.regressor.getN(), re = c.getVisits() + 20;
+                    SimpleRegression cRegressor = ((State) c.state).getRegressor();
+                    double rs = c.getVisits() - cRegressor.getN(), re = c.getVisits() + 20;
                     for (int i = (int) rs; i < re; i++) {
-                        regressor.xy(i, c.state.regressor.predict(i));
+                        regressor.xy(i, cRegressor.predict(i));
                     }
 
 
@@ -157,15 +177,481 @@ public class UCTPlayer implements AIPlayer {
         }
         // Pack the transpositions
         tt.pack(options.trans_offset);
+        if (workerTT != null) {
+            for (int i = 1; i < workerTT.length; i++)
+                workerTT[i].pack(options.trans_offset);
+        }
+        // Keep the subtree of the move played for the next move, the rest of the tree is freed
+        playedNode = null;
+        if ((options.reuseTree || options.ponder) && root != null && root.children != null) {
+            for (UCTNode c : root.children) {
+                if (Arrays.equals(c.move, bestMove))
+                    playedNode = c;
+            }
+        }
+        if (playedNode != null) {
+            // The subtree is still used, so its positions are not stale in the new generation
+            playedNode.touch();
+            if (options.ponder)
+                startPondering(board);
+        }
         this.root = null;
         this.board = null;
         System.gc();
+        timeManager.endMove();
         if (moveCallback != null)
             moveCallback.makeMove(bestMove);
     }
 
+    /**
+     * Starts searching the subtree of the move played on a background thread, until the next call to getMove or
+     * options.ponderSimulations playouts. The search then continues from the node of the opponent's reply.
+     */
+    private void startPondering(IBoard board) {
+        IBoard ponderBoard = board.clone();
+        ponderBoard.doMove(bestMove);
+        // Nothing to ponder when the game is decided
+        if (playedNode.isSolved() || ponderBoard.checkWin() != IBoard.NONE_WIN)
+            return;
+
+        UCTNode pRoot = playedNode;
+        Options ponderOptions = options.copy();
+        ponderOptions.fixedSimulations = true; // Not timed, runs until stopped or the playouts are spent
+        SplittableRandom ponderRng = Options.rng().split();
+        ponderThread = new Thread(() -> {
+            Options.setRng(ponderRng);
+            int simulations = search(pRoot, ponderBoard, ponderOptions, options.ponderSimulations, -1);
+            if (Options.debug)
+                System.out.println("- pondered: " + State.df0.format(simulations) + " playouts");
+        }, "uct-ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    @Override
+    public void newGame() {
+        stopPondering();
+        timeManager.reset();
+        playedNode = null;
+        bestMove = null;
+    }
+
+    /**
+     * Stops the background search on the opponent's time, and waits for it to finish
+     */
+    @Override
+    public void stopPondering() {
+        if (ponderThread == null)
+            return;
+        stop = true;
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+        stop = false;
+    }
+
+    /**
+     * Finds the current position in the tree of the previous search, among the opponent's replies to the move played.
+     * The rest of the previous tree is freed.
+     *
+     * @return the node of the current position, or null if it was not expanded
+     */
+    private UCTNode findReusableRoot(IBoard board) {
+        UCTNode played = playedNode;
+        playedNode = null;
+        if (played == null || played.children == null)
+            return null;
+        for (UCTNode reply : played.children) {
+            if (reply.getHash() == board.hash() && reply.player == board.getPlayerToMove())
+                return reply;
+        }
+        return null;
+    }
+
+    /**
+     * Runs simulations from the root until the time manager stops the search (or the simulation budget is spent), or
+     * the root is proven.
+     *
+     * @param thread The number of the search thread, which publishes a snapshot of the search every
+     *               options.snapshotInterval playouts, or -1 to publish nothing
+     * @return the number of playouts made
+     */
+    private int search(UCTNode root, IBoard board, Options options, int maxSimulations, int thread) {
+        int simulations = 0, nextSnapshot = options.snapshotInterval, nextCheck = 1; // At least one simulation
+        double nSamples = options.nSamples;
+        options.resetMAST(board.getMaxMoveId());
+        UCTPath path = options.iterative ? new UCTPath() : null;
+        // Simulations are made on a scratch board, restored by taking back the moves
+        IBoard simBoard = BoardPool.copy(board);
+        // Run the MCTS algorithm while time allows it, or as many simulations as allowed
+        while (!stop) {
+            if (options.fixedSimulations) {
+                if (simulations >= maxSimulations)
+                    break;
+            } else if (simulations >= nextCheck) {
+                // The clock is only read every few milliseconds
+                int interval = check(root, thread, simulations);
+                if (interval == 0)
+                    break;
+                nextCheck = simulations + interval;
+            }
+            // Reset nSamples when doing heurisic resampling
+            if (options.resample)
+                options.nSamples = nSamples;
+
+            simulations += options.nSamples;
+            playouts.add((int) options.nSamples);
+
+            if (Options.debug && options.nSamples == 1)
+                options.checkRaveMoves();
+
+            options.resetRAVE(board.getMaxMoveId());
+            // Make one simulation from root to leaf.
+            if (path != null)
+                root.iterativeMCTS(simBoard, path, options);
+            else
+                root.MCTS(simBoard, 0, options);
+            assert simBoard.hash() == board.hash() : "Board not restored after simulation";
+            // Check if the root is proven
+            if (root.isSolved())
+                break; // Break if you find a winning move
+
+            if (thread >= 0 && nextSnapshot > 0 && simulations >= nextSnapshot) {
+                publish(root, thread);
+                nextSnapshot += options.snapshotInterval;
+            }
+        }
+        BoardPool.release(simBoard);
+        // A root parallel search ends when the deciding thread ends
+        if (thread == 0 && threadSnapshots != null)
+            timeManager.stop();
+        return simulations;
+    }
+
+    /**
+     * Asks the time manager whether to go on searching. The first thread of a root parallel search decides for all
+     * threads, on their trees combined.
+     *
+     * @return The number of playouts until the next check, or 0 if the search should stop
+     */
+    private int check(UCTNode root, int thread, int simulations) {
+        AtomicReferenceArray<SearchSnapshot> trees = threadSnapshots;
+        if (trees == null || thread < 0)
+            return timeManager.check(simulations, root);
+        trees.set(thread, SearchSnapshot.of(root, simulations));
+        if (thread > 0)
+            return timeManager.keepSearching(simulations);
+        SearchSnapshot merged = SearchSnapshot.merge(trees, playouts.intValue());
+        return (merged == null) ? timeManager.keepSearching(simulations) : timeManager.check(simulations, merged);
+    }
+
+    /**
+     * Publishes a snapshot of the search, with the playouts of all threads. The threads of a root parallel search
+     * each publish their own tree, the trees are merged once all are published.
+     */
+    private void publish(UCTNode root, int thread) {
+        AtomicReferenceArray<SearchSnapshot> trees = threadSnapshots;
+        if (trees == null) {
+            // A single tree, shown by the first thread
+            if (thread == 0)
+                snapshot = SearchSnapshot.of(root, playouts.intValue());
+            return;
+        }
+        trees.set(thread, SearchSnapshot.of(root, 0));
+        SearchSnapshot merged = SearchSnapshot.merge(trees, playouts.intValue());
+        if (merged != null)
+            snapshot = merged;
+    }
+
+    /**
+     * Searches using the preallocated NodePool as tree, instead of UCTNode objects.
+     *
+     * @return the number of playouts made, or -1 if the pool cannot hold the children of the root
+     */
+    private int poolSearch(IBoard board) {
+        if (nodePool == null)
+            nodePool = new NodePool(options.poolCapacity);
+        nodePool.reset(board.getPlayerToMove(), options);
+        int simulations = 0, nextSnapshot = options.snapshotInterval, nextCheck = 1; // At least one simulation
+        double nSamples = options.nSamples;
+        options.resetMAST(board.getMaxMoveId());
+        IBoard simBoard = BoardPool.copy(board);
+        while (true) {
+            if (options.fixedSimulations) {
+                if (simulations >= options.nSimulations)
+                    break;
+            } else if (simulations >= nextCheck) {
+                int interval = timeManager.check(simulations, nodePool);
+                if (interval == 0)
+                    break;
+                nextCheck = simulations + interval;
+            }
+            // Reset nSamples when doing heurisic resampling
+            if (options.resample)
+                options.nSamples = nSamples;
+
+            simulations += options.nSamples;
+            options.resetRAVE(board.getMaxMoveId());
+            // Make one simulation from root to leaf.
+            nodePool.MCTS(simBoard, options);
+            if (!nodePool.isRootExpanded()) {
+                BoardPool.release(simBoard);
+                return -1;
+            }
+            // Check if the root is proven
+            if (nodePool.isSolved())
+                break; // Break if you find a winning move
+
+            if (nextSnapshot > 0 && simulations >= nextSnapshot) {
+                snapshot = nodePool.getSnapshot(simulations);
+                nextSnapshot += options.snapshotInterval;
+            }
+        }
+        BoardPool.release(simBoard);
+        bestMove = nodePool.getBestMove();
+        snapshot = nodePool.getSnapshot(simulations);
+        if (Options.debug) {
+            System.out.println("-------- < uct pool debug > ----------");
+            System.out.println(nodePool.toString(board));
+            System.out.println("- best move: " + board.getMoveString(bestMove));
+            System.out.println("- # of playouts: " + State.df0.format(simulations));
+            System.out.println("-------- </uct pool debug > ----------");
+        }
+        return simulations;
+    }
+
+    /**
+     * Root parallelisation: every thread searches its own tree, with its own board, options and transposition table.
+     * Afterwards the visits of the root's children are summed over all trees, and the best move is selected from the
+     * totals.
+     *
+     * @return the total number of playouts made
+     */
+    private int rootParallelSearch(IBoard board) {
+        int nThreads = options.nThreads;
+        if (workerTT == null || workerTT.length != nThreads) {
+            workerTT = new ITransposTable[nThreads];
+            workerTT[0] = tt;
+            for (int i = 1; i < nThreads; i++)
+                workerTT[i] = newTransposTable();
+        }
+        ExecutorService pool = getPool();
+        UCTNode[] roots = new UCTNode[nThreads];
+        List<Future<Integer>> results = new ArrayList<>(nThreads);
+        int maxSimulations = (int) Math.ceil(options.nSimulations / (double) nThreads);
+        threadSnapshots = new AtomicReferenceArray<>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            Options thOptions = options.copy();
+            IBoard thBoard = board.clone();
+            UCTNode thRoot = new UCTNode(board.getPlayerToMove(), thOptions, board.hash(), workerTT[i]);
+            roots[i] = thRoot;
+            int thread = i;
+            SplittableRandom thRng = Options.rng().split();
+            results.add(pool.submit(() -> {
+                Options.setRng(thRng);
+                return search(thRoot, thBoard, thOptions, maxSimulations, thread);
+            }));
+        }
+        int simulations = sum(results);
+        threadSnapshots = null;
+        snapshot = mergeRoots(roots, board, simulations);
+        bestMove = snapshot.bestMove;
+        if (Options.debug) {
+            System.out.println("- # of threads: " + nThreads + ", # of playouts: " + State.df0.format(simulations));
+            System.out.println("- best move: " + board.getMoveString(bestMove));
+        }
+        return simulations;
+    }
+
+    /**
+     * Tree parallelisation: all threads search the shared tree below the root, each with its own board and options.
+     * Threads are spread over the tree using virtual loss.
+     *
+     * @return the total number of playouts made
+     */
+    private int treeParallelSearch(IBoard board) {
+        int nThreads = options.nThreads;
+        ExecutorService pool = getPool();
+        List<Future<Integer>> results = new ArrayList<>(nThreads);
+        int maxSimulations = (int) Math.ceil(options.nSimulations / (double) nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            Options thOptions = options.copy();
+            IBoard thBoard = board.clone();
+            int thread = i;
+            SplittableRandom thRng = Options.rng().split();
+            results.add(pool.submit(() -> {
+                Options.setRng(thRng);
+                return search(root, thBoard, thOptions, maxSimulations, thread);
+            }));
+        }
+        return sum(results);
+    }
+
+    private ExecutorService getPool() {
+        if (pool == null)
+            pool = Executors.newFixedThreadPool(options.nThreads, r -> {
+                Thread t = new Thread(r, "uct-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        return pool;
+    }
+
+    private ExecutorService getSamplePool() {
+        if (samplePool == null)
+            samplePool = Executors.newFixedThreadPool(options.nThreads, r -> {
+                Thread t = new Thread(r, "uct-sample");
+                t.setDaemon(true);
+                return t;
+            });
+        return samplePool;
+    }
+
+    /**
+     * Waits for all search threads to finish, and sums their number of playouts
+     */
+    private int sum(List<Future<Integer>> results) {
+        int simulations = 0;
+        try {
+            for (Future<Integer> result : results)
+                simulations += result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Search thread failed", e);
+        }
+        return simulations;
+    }
+
+    /**
+     * Sums the visits of the root's children over all trees and returns the move with the highest total. A move that
+     * was proven a win in any of the trees is always preferred, a proven loss is only chosen if nothing else remains.
+     *
+     * @return A snapshot with the merged visits and the selected move
+     */
+    private SearchSnapshot mergeRoots(UCTNode[] roots, IBoard board, int simulations) {
+        UCTNode first = null;
+        for (UCTNode r : roots) {
+            if (r.children != null && !r.children.isEmpty()) {
+                first = r;
+                break;
+            }
+        }
+        assert first != null : "No tree was expanded";
+        int nChildren = first.children.size(), player = first.player;
+        double[] visits = new double[nChildren];
+        boolean[] won = new boolean[nChildren], lost = new boolean[nChildren];
+        for (UCTNode r : roots) {
+            if (r.children == null || r.children.isEmpty())
+                continue;
+            assert r.children.size() == nChildren : "Trees have different roots";
+            int i = 0;
+            for (UCTNode c : r.children) {
+                double val = c.getValue(player);
+                if (val == Integer.MAX_VALUE)
+                    won[i] = true;
+                else if (val == Integer.MIN_VALUE)
+                    lost[i] = true;
+                visits[i] += c.getVisits();
+                i++;
+            }
+        }
+        double max = Double.NEGATIVE_INFINITY, value;
+        int best = 0, i = 0;
+        int[][] moves = new int[nChildren][];
+        int[] totals = new int[nChildren];
+        for (UCTNode c : first.children) {
+            moves[i] = c.move;
+            totals[i] = (int) visits[i];
+            if (won[i])
+                value = Integer.MAX_VALUE - Options.rng().nextDouble();
+            else if (lost[i])
+                value = Integer.MIN_VALUE + visits[i] + Options.rng().nextDouble();
+            else
+                value = visits[i];
+            if (Options.debug)
+                System.out.println(board.getMoveString(c.move) + "\t :: n: " + State.df0.format(visits[i])
+                        + (won[i] ? " (win)" : (lost[i] ? " (loss)" : "")));
+            if (value > max) {
+                max = value;
+                best = i;
+            }
+            i++;
+        }
+        return new SearchSnapshot(moves[best], moves, totals, simulations);
+    }
+
+    /**
+     * Returns the latest state of the current (or last) search. Can be called from any thread, and never blocks the
+     * search. Returns null if no snapshot was published yet for the current move.
+     */
+    public SearchSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     public void setOptions(Options options) {
+        checkOptions(options);
         this.options = options;
+        this.timeManager = new TimeManager(options);
+        this.rng = Options.splitRandom();
+        this.tt = newTransposTable();
+        this.workerTT = null;
+    }
+
+    /**
+     * Rejects combinations of options that a search would otherwise ignore
+     */
+    private static void checkOptions(Options options) {
+        if (options.nodePool) {
+            // The pool holds a single tree, with its own statistics
+            if (options.nThreads > 1 || options.treeParallel || options.leafParallel)
+                throw new RuntimeException("Parallel search is not supported with nodePool");
+            if (options.reuseTree || options.ponder)
+                throw new RuntimeException("Tree reuse and pondering are not supported with nodePool");
+            if (options.regression || options.cusum)
+                throw new RuntimeException("Regression and change detection are not supported with nodePool");
+            if (options.openTT || options.ttBytes > 0 || options.ttFile != null)
+                throw new RuntimeException("Transposition table options are not supported with nodePool");
+        }
+        // Only the primitive table is bounded by the memory budget and loads saved tables, but it cannot be shared or
+        // keep a history
+        if ((options.openTT || options.ttBytes > 0 || options.ttFile != null)
+                && (options.treeParallel || options.regression || options.cusum))
+            throw new RuntimeException("The primitive transposition table is not supported with treeParallel, regression or cusum");
+    }
+
+    /**
+     * The threads of a tree parallel search share the table. The primitive table is not thread-safe, and does not keep
+     * the history needed for regression and change detection.
+     */
+    private ITransposTable newTransposTable() {
+        if (options.treeParallel)
+            return new ConcurrentTransposTable();
+        if (options.openTT || options.ttBytes > 0 || options.ttFile != null) {
+            // The threads of a root parallel search share the budget
+            long bytes = options.ttBytes / options.nThreads;
+            long size = (bytes > 0) ? OpenTransposTable.positionsFor(bytes) : options.ttSize;
+            OpenTransposTable table = new OpenTransposTable(size, options.offHeapTT);
+            if (options.ttFile != null) {
+                try {
+                    table.load(Paths.get(options.ttFile));
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot load transposition table " + options.ttFile, e);
+                }
+            }
+            return table;
+        }
+        return new TransposTable();
+    }
+
+    /**
+     * Saves the positions of the transposition table, see Options.ttFile
+     */
+    public void saveTransposTable(Path file) throws IOException {
+        // The table is not changed while it is written
+        stopPondering();
+        tt.save(file);
     }
 
     @Override
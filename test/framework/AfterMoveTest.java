@@ -0,0 +1,42 @@
+package framework;
+
+import java.util.Random;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class AfterMoveTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        for (int game = 0; game < 2; game++) {
+            for (IBoard board : Boards.all())
+                matchesMove(board, random);
+        }
+        System.out.println("AfterMoveTest passed");
+    }
+
+    /**
+     * Along a random game, the position after every move must be computed as if the move was made, without changing
+     * the board
+     */
+    private static void matchesMove(IBoard board, Random random) {
+        String name = board.getClass().getName();
+        for (int move = Boards.randomMove(board, random); move >= 0; move = Boards.randomMove(board, random)) {
+            String position = Boards.describe(board);
+            MoveList moves = board.getExpandMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                int m = moves.getPacked(i);
+                IBoard after = board.clone();
+                after.doMove(m);
+                String moveString = name + " " + board.getMoveString(moves.get(i));
+                equal(after.hash(), board.hashAfter(m), "Hash after " + moveString);
+                equal(after.checkWin(), board.checkWinAfter(m), "Winner after " + moveString);
+                for (int player = IBoard.P1; player <= IBoard.P2; player++)
+                    equal(after.evaluate(player), board.evaluateAfter(m, player), "Evaluation after " + moveString);
+            }
+            check(position.equals(Boards.describe(board)), name + " changed by the moves looked ahead");
+            board.doMove(move);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package framework;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The boards of every game, and random games on them for the tests
+ */
+public final class Boards {
+    private Boards() {
+    }
+
+    /**
+     * @return A board of every game, at the starting position
+     */
+    public static List<IBoard> all() {
+        List<IBoard> boards = Arrays.asList(new amazons.game.Board(), new atarigo.game.Board(9),
+                new breakthrough.game.Board(), new gomoku.game.Board(9), new hex.game.Board(11),
+                new TicTacToe.Board());
+        for (IBoard board : boards)
+            board.initialize();
+        return boards;
+    }
+
+    /**
+     * @return A random packed move of the board, or -1 if the game is over
+     */
+    public static int randomMove(IBoard board, Random random) {
+        if (board.checkWin() != IBoard.NONE_WIN)
+            return -1;
+        MoveList moves = board.getExpandMoves();
+        return moves.isEmpty() ? -1 : moves.getPacked(random.nextInt(moves.size()));
+    }
+
+    /**
+     * @return What the tests compare of two positions: the hash, the player to move, the winner and the moves
+     */
+    public static String describe(IBoard board) {
+        MoveList moves = board.getExpandMoves();
+        int[] packed = new int[moves.size()];
+        for (int i = 0; i < packed.length; i++)
+            packed[i] = moves.getPacked(i);
+        Arrays.sort(packed);
+        return board.hash() + " P" + board.getPlayerToMove() + " W" + board.checkWin() + " " + Arrays.toString(packed);
+    }
+}
@@ -0,0 +1,24 @@
+package framework;
+
+/**
+ * Checks for the tests in the test folder, run them with scripts/test.sh. Unlike assert, these do not need -ea.
+ */
+public final class Check {
+    private Check() {
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void equal(long expected, long actual, String message) {
+        if (expected != actual)
+            throw new AssertionError(message + ": expected " + expected + ", was " + actual);
+    }
+
+    public static void equal(double expected, double actual, String message) {
+        if (Double.compare(expected, actual) != 0)
+            throw new AssertionError(message + ": expected " + expected + ", was " + actual);
+    }
+}
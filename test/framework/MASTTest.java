@@ -0,0 +1,69 @@
+package framework;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class MASTTest {
+
+    public static void main(String[] args) {
+        mapsSparseIds();
+        updatesPlayedMoves();
+        System.out.println("MASTTest passed");
+    }
+
+    /**
+     * Sparse ids share a compact table, which grows and is cleared without losing moves
+     */
+    private static void mapsSparseIds() {
+        int maxId = 646465;
+        MASTTable table = new MASTTable(maxId);
+        check(Double.isNaN(table.getValue(1, maxId - 1)), "Value of an unseen move");
+        equal(0., table.getVisits(1, maxId - 1), "Visits of an unseen move");
+        // More moves than the initial capacity
+        for (int i = 0; i < 1000; i++) {
+            int id = (i * 647) % maxId;
+            table.update(1, id, 1);
+            table.update(1, id, 0);
+            table.update(2, id, 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            int id = (i * 647) % maxId;
+            equal(.5, table.getValue(1, id), "Value of player 1");
+            equal(2., table.getVisits(1, id), "Visits of player 1");
+            equal(1., table.getValue(2, id), "Value of player 2");
+            equal(1., table.getVisits(2, id), "Visits of player 2");
+        }
+        table.clear();
+        check(Double.isNaN(table.getValue(1, 647)), "Value after clear");
+        table.update(2, 647, -1);
+        equal(-1., table.getValue(2, 647), "Value of a move seen again after clear");
+        equal(0., table.getVisits(1, 647), "Visits of the other player after clear");
+    }
+
+    /**
+     * The moves of a playout are added to the statistics of the player that played them, once
+     */
+    private static void updatesPlayedMoves() {
+        Options options = new Options();
+        options.resetMAST(1000);
+        // More moves than the initial buffer
+        for (int i = 0; i < 300; i++) {
+            options.addMASTMove(1, i);
+            options.addMASTMove(2, 999 - i);
+        }
+        options.updateMASTMoves(new double[]{1, -1});
+        for (int i = 0; i < 300; i++) {
+            equal(1., options.getMASTVisits(1, i), "Visits of a move of player 1");
+            equal(1., options.getMASTValue(1, i), "Value of a move of player 1");
+            equal(-1., options.getMASTValue(2, 999 - i), "Value of a move of player 2");
+        }
+        equal(0., options.getMASTVisits(2, 0), "Visits of a move player 2 did not play");
+        // The buffer is emptied by the update
+        options.addMASTMove(1, 0);
+        options.updateMASTMoves(new double[]{0, 0});
+        equal(2., options.getMASTVisits(1, 0), "Visits of a move played twice");
+        equal(1., options.getMASTVisits(1, 1), "Visits of a move played once");
+        options.resetMAST(1000);
+        equal(0., options.getMASTVisits(1, 0), "Visits after a new search");
+    }
+}
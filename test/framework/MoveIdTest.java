@@ -0,0 +1,43 @@
+package framework;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class MoveIdTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        for (IBoard board : Boards.all()) {
+            Map<Integer, Integer> moves = new HashMap<>();
+            for (int game = 0; game < 20; game++)
+                numbersMoves(board.clone(), random, moves);
+        }
+        System.out.println("MoveIdTest passed");
+    }
+
+    /**
+     * Along a random game, every move must have an id below getMaxMoveId, and different moves different ids
+     *
+     * @param moves The moves by id seen in earlier games
+     */
+    private static void numbersMoves(IBoard board, Random random, Map<Integer, Integer> moves) {
+        String name = board.getClass().getName();
+        for (int move = Boards.randomMove(board, random); move >= 0; move = Boards.randomMove(board, random)) {
+            for (MoveList list : new MoveList[]{board.getExpandMoves(), board.getPlayoutMoves(false)}) {
+                for (int i = 0; i < list.size(); i++) {
+                    int m = list.getPacked(i), id = board.getMoveId(m);
+                    String moveString = name + " " + board.getMoveString(list.get(i));
+                    check(id >= 0 && id < board.getMaxMoveId(), "Id " + id + " of " + moveString + " out of range");
+                    equal(id, board.getMoveId(list.get(i)), "Id of the unpacked " + moveString);
+                    Integer other = moves.putIfAbsent(id, m);
+                    check(other == null || other == m, "Id " + id + " of " + moveString + " used by another move");
+                }
+            }
+            board.doMove(move);
+        }
+    }
+}
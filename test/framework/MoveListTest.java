@@ -0,0 +1,57 @@
+package framework;
+
+import java.util.Arrays;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class MoveListTest {
+
+    public static void main(String[] args) {
+        readsWithoutCopies();
+        growsWithAllParts();
+        packsMoves();
+        System.out.println("MoveListTest passed");
+    }
+
+    /**
+     * All ways to read a move give the same parts
+     */
+    private static void readsWithoutCopies() {
+        MoveList list = new MoveList(4, 3);
+        list.add(1, 2, 3);
+        list.add(4, 5);
+        equal(3, list.getParts(), "Parts");
+        equal(2, list.size(), "Size");
+        check(Arrays.equals(new int[]{1, 2, 3}, list.get(0)), "Copy of a move");
+        check(Arrays.equals(new int[]{4, 5, 0}, list.get(1)), "Copy of a move with fewer parts");
+        int[] move = new int[3];
+        check(list.get(0, move) == move && Arrays.equals(new int[]{1, 2, 3}, move), "Move read into an array");
+        equal(5, list.get(1, 1), "Part of a move");
+        equal(MoveList.pack(new int[]{4, 5, 0}), list.getPacked(1), "Packed move");
+    }
+
+    /**
+     * Growing the list keeps every part of the moves, and a move added over a cleared one has no old parts
+     */
+    private static void growsWithAllParts() {
+        MoveList list = new MoveList(1, 3);
+        for (int i = 0; i < 100; i++)
+            list.add(i, i + 1, i + 2);
+        for (int i = 0; i < 100; i++)
+            check(Arrays.equals(new int[]{i, i + 1, i + 2}, list.get(i)), "Move " + i + " after growing");
+        list.clear();
+        check(list.isEmpty(), "Cleared list is not empty");
+        list.add(7, 8);
+        equal(0, list.get(0, 2), "Part of a cleared move");
+        equal(1, list.getArray().length, "Moves after clear");
+    }
+
+    private static void packsMoves() {
+        int[] move = {3, 255, 0, 17};
+        int packed = MoveList.pack(move);
+        for (int i = 0; i < move.length; i++)
+            equal(move[i], MoveList.part(packed, i), "Part " + i);
+        check(Arrays.equals(move, MoveList.unpack(packed, move.length)), "Unpacked move");
+    }
+}
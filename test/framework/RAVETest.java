@@ -0,0 +1,48 @@
+package framework;
+
+import static framework.Check.check;
+
+public class RAVETest {
+
+    public static void main(String[] args) {
+        keepsDepth();
+        clearsOnReset();
+        System.out.println("RAVETest passed");
+    }
+
+    /**
+     * A move counts for RAVE below the depth it was played at, for the player that played it
+     */
+    private static void keepsDepth() {
+        Options options = new Options();
+        options.resetRAVE(100);
+        options.addRAVEMove(1, 42, 5);
+        check(options.isRAVEMove(1, 42, 0), "Move played deeper");
+        check(options.isRAVEMove(1, 42, 4), "Move played one deeper");
+        check(!options.isRAVEMove(1, 42, 5), "Move played at the same depth");
+        check(!options.isRAVEMove(2, 42, 0), "Move of the other player");
+        check(!options.isRAVEMove(1, 43, 0), "Move not played");
+        options.addRAVEMove(1, 42, 3);
+        check(!options.isRAVEMove(1, 42, 4), "Move played again higher up");
+    }
+
+    /**
+     * The moves of the previous simulation are gone after a reset, also when the table is kept
+     */
+    private static void clearsOnReset() {
+        Options options = new Options();
+        options.resetRAVE(100);
+        options.addRAVEMove(1, 42, 5);
+        options.addRAVEMove(2, 7, 5);
+        for (int i = 0; i < 3; i++) {
+            options.resetRAVE(100);
+            check(!options.isRAVEMove(1, 42, 0) && !options.isRAVEMove(2, 7, 0), "Move of an earlier simulation");
+            options.addRAVEMove(2, 42, 1);
+            check(options.isRAVEMove(2, 42, 0), "Move of this simulation");
+        }
+        options.resetRAVE(200);
+        check(!options.isRAVEMove(2, 42, 0), "Move of a table of another size");
+        options.addRAVEMove(1, 150, 1);
+        check(options.isRAVEMove(1, 150, 0), "Move in the larger table");
+    }
+}
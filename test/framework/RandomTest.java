@@ -0,0 +1,66 @@
+package framework;
+
+import java.util.SplittableRandom;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class RandomTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        repeatsSeed();
+        splitsStreams();
+        keepsThreadStream();
+        System.out.println("RandomTest passed");
+    }
+
+    /**
+     * The same seed gives the same numbers
+     */
+    private static void repeatsSeed() {
+        Options.setSeed(42);
+        long first = Options.rng().nextLong();
+        SplittableRandom split = Options.splitRandom();
+        long splitFirst = split.nextLong();
+        Options.setSeed(42);
+        equal(first, Options.rng().nextLong(), "Stream of the seed");
+        equal(splitFirst, Options.splitRandom().nextLong(), "Stream split from the seed");
+    }
+
+    /**
+     * Every split stream is different, and new threads get a stream of their own
+     */
+    private static void splitsStreams() throws InterruptedException {
+        Options.setSeed(42);
+        long main = Options.rng().nextLong();
+        check(Options.splitRandom().nextLong() != Options.splitRandom().nextLong(), "Split streams are the same");
+        long[] other = new long[1];
+        Thread thread = new Thread(() -> other[0] = Options.rng().nextLong());
+        thread.start();
+        thread.join();
+        check(other[0] != main, "New thread has the stream of the main thread");
+    }
+
+    /**
+     * A stream set on a thread is used by that thread only
+     */
+    private static void keepsThreadStream() throws InterruptedException {
+        Options.setSeed(42);
+        long expected = new SplittableRandom(7).nextLong();
+        long[] actual = new long[1];
+        Thread thread = new Thread(() -> {
+            Options.setRng(new SplittableRandom(7));
+            actual[0] = Options.rng().nextLong();
+        });
+        thread.start();
+        thread.join();
+        equal(expected, actual[0], "Stream set on the thread");
+        Options.setSeed(42);
+        long main = Options.rng().nextLong();
+        Options.setSeed(42);
+        thread = new Thread(() -> Options.setRng(new SplittableRandom(7)));
+        thread.start();
+        thread.join();
+        equal(main, Options.rng().nextLong(), "Stream of the main thread after another thread set its own");
+    }
+}
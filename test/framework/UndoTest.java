@@ -0,0 +1,70 @@
+package framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class UndoTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        for (int game = 0; game < 5; game++) {
+            for (IBoard board : Boards.all()) {
+                undoesGame(board, random);
+                copiesPosition(board, random);
+            }
+        }
+        System.out.println("UndoTest passed");
+    }
+
+    /**
+     * Plays a random game, then takes back every move, the positions must be the same on the way back
+     */
+    private static void undoesGame(IBoard board, Random random) {
+        String name = board.getClass().getName();
+        List<String> positions = new ArrayList<>();
+        for (int move = Boards.randomMove(board, random); move >= 0; move = Boards.randomMove(board, random)) {
+            positions.add(Boards.describe(board));
+            board.doMove(move);
+        }
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            board.undoMove();
+            check(positions.get(i).equals(Boards.describe(board)), name + " not restored by undo at move " + i);
+        }
+    }
+
+    /**
+     * A board copied into another board plays on like a clone
+     */
+    private static void copiesPosition(IBoard board, Random random) {
+        String name = board.getClass().getName();
+        IBoard other = board.clone();
+        for (int i = 0; i < 10 && Boards.randomMove(other, random) >= 0; i++)
+            other.doMove(Boards.randomMove(other, random));
+        for (int i = 0; i < 20 && Boards.randomMove(board, random) >= 0; i++)
+            board.doMove(Boards.randomMove(board, random));
+        IBoard clone = board.clone();
+        other.copyFrom(board);
+        check(Boards.describe(clone).equals(Boards.describe(other)), name + " copy differs from clone");
+        // The incremental evaluation terms are copied too
+        for (int player = 1; player <= 2; player++) {
+            equal(board.evaluate(player), clone.evaluate(player), name + " clone evaluates differently");
+            equal(board.evaluate(player), other.evaluate(player), name + " copy evaluates differently");
+        }
+        String before = null;
+        for (int move = Boards.randomMove(clone, random); move >= 0; move = Boards.randomMove(clone, random)) {
+            before = Boards.describe(other);
+            clone.doMove(move);
+            other.doMove(move);
+            check(Boards.describe(clone).equals(Boards.describe(other)), name + " copy plays differently");
+        }
+        // The copy starts with an empty history, but takes back its own moves
+        if (before != null) {
+            other.undoMove();
+            check(before.equals(Boards.describe(other)), name + " copy not restored by undo");
+        }
+    }
+}
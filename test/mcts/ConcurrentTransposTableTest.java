@@ -0,0 +1,53 @@
+package mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class ConcurrentTransposTableTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        addsPositionsOnce();
+        agesStates();
+        System.out.println("ConcurrentTransposTableTest passed");
+    }
+
+    private static void addsPositionsOnce() throws InterruptedException {
+        ConcurrentTransposTable tt = new ConcurrentTransposTable();
+        int n = 100000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (long hash = 0; hash < n; hash++)
+                    tt.getState(hash * 0x9E3779B97F4A7C15L, false).updateStats(new double[]{1, -1}, 1, false, false);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        equal(n, tt.getPositions(), "Positions");
+        for (long hash = 0; hash < n; hash++)
+            equal(4, tt.getState(hash * 0x9E3779B97F4A7C15L, true).getVisits(), "Visits of position " + hash);
+    }
+
+    private static void agesStates() {
+        ConcurrentTransposTable tt = new ConcurrentTransposTable();
+        IState kept = tt.getState(1, false);
+        tt.getState(2, false);
+        tt.pack(0);
+        kept.touch(tt.getGeneration());
+        check(tt.getState(1, true) == kept, "Touched state is stale");
+        check(tt.getState(2, true) == null, "State not touched is live");
+        // The stale state is replaced by a new one
+        IState added = tt.getState(2, false);
+        check(added != null && added.getVisits() == 0, "Stale state used again");
+        // Sweep every chain
+        for (long hash = 3; hash < 3 + (1 << 19); hash++)
+            tt.getState(hash, false);
+        equal(1, tt.pack(0), "Removed states");
+        equal(2 + (1 << 19), tt.getPositions(), "Positions");
+    }
+}
@@ -0,0 +1,35 @@
+package mcts;
+
+import static framework.Check.equal;
+
+public class LongStoreTest {
+
+    public static void main(String[] args) {
+        crossesChunks();
+        System.out.println("LongStoreTest passed");
+    }
+
+    /**
+     * Values on both sides of a chunk boundary, and in a last chunk that is not full, are kept apart
+     */
+    private static void crossesChunks() {
+        int size = 100; // Chunks of 16 longs, the last one holds 4
+        LongStore.OffHeap store = new LongStore.OffHeap(size, 4);
+        LongStore.Heap heap = new LongStore.Heap(size);
+        for (int i = 0; i < size; i++)
+            equal(0, store.get(i), "Initial value at " + i);
+        for (int i = 0; i < size; i++) {
+            long value = (long) i << 40 | i;
+            store.set(i, value);
+            heap.set(i, value);
+        }
+        for (int i = 0; i < size; i++)
+            equal(heap.get(i), store.get(i), "Value at " + i);
+        store.set(15, -1);
+        store.set(16, 1);
+        equal(-1, store.get(15), "Last value of a chunk");
+        equal(1, store.get(16), "First value of the next chunk");
+        equal(heap.get(17), store.get(17), "Value after the boundary");
+        equal(heap.get(size - 1), store.get(size - 1), "Last value");
+    }
+}
@@ -0,0 +1,100 @@
+package mcts;
+
+import framework.Options;
+import mcts.uct.UCTNode;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class OpenTransposTableTest {
+
+    public static void main(String[] args) {
+        storesPositions();
+        replacesLeastVisited();
+        keepsHandlePerNode();
+        keepsTouchedEntries();
+        keepsRejectedStats();
+        fitsBudget();
+        System.out.println("OpenTransposTableTest passed");
+    }
+
+    private static void update(IState state, double result, int n) {
+        for (int i = 0; i < n; i++)
+            state.updateStats(new double[]{result, -result}, 1, false, false);
+    }
+
+    private static void storesPositions() {
+        OpenTransposTable tt = new OpenTransposTable(1 << 10);
+        check(tt.getState(42, true) == null, "Absent position found");
+        IState state = tt.getState(42, false);
+        update(state, 1, 3);
+        state.setImValue(.5, 1);
+        IState found = tt.getState(42, true);
+        check(found != null, "Added position not found");
+        equal(3, found.getVisits(), "Visits");
+        equal(1., found.getMean(1), "Mean for player 1");
+        equal(-1., found.getMean(2), "Mean for player 2");
+        equal(.5, found.getImValue(1), "Implicit minimax value");
+        equal(1, tt.getPositions(), "Positions");
+    }
+
+    private static void replacesLeastVisited() {
+        // A single bucket
+        OpenTransposTable tt = new OpenTransposTable(4);
+        int[] visits = {3, 1, 2, 5};
+        for (int i = 0; i < visits.length; i++)
+            update(tt.getState(i + 1, false), 0, visits[i]);
+        tt.getState(5, false);
+        equal(1, tt.getCollisions(), "Collisions");
+        check(tt.getState(2, true) == null, "Least visited position was not replaced");
+        for (long hash : new long[]{1, 3, 4, 5})
+            check(tt.getState(hash, true) != null, "Position " + hash + " was replaced");
+    }
+
+    private static void keepsHandlePerNode() {
+        OpenTransposTable tt = new OpenTransposTable(1 << 10);
+        update(tt.getState(7, false), 1, 2);
+        UCTNode node = new UCTNode(1, new Options(), 7, tt);
+        IState state = node.state;
+        check(state != null, "Node did not find its state");
+        for (int i = 0; i < 10; i++)
+            equal(2., node.getVisits(), "Visits of the node");
+        check(node.state == state, "Node looked up its state again");
+    }
+
+    private static void keepsTouchedEntries() {
+        OpenTransposTable tt = new OpenTransposTable(1 << 10);
+        IState kept = tt.getState(1, false), dropped = tt.getState(2, false);
+        update(kept, 1, 4);
+        update(dropped, 1, 4);
+        tt.pack(0);
+        kept.touch(tt.getGeneration());
+        equal(4, kept.getVisits(), "Visits of the touched position");
+        check(tt.getState(1, true) != null, "Touched position is stale");
+        check(tt.getState(2, true) == null, "Position not touched is live");
+    }
+
+    private static void keepsRejectedStats() {
+        // A single bucket of solved positions
+        OpenTransposTable tt = new OpenTransposTable(4);
+        for (long hash = 1; hash <= 4; hash++)
+            tt.getState(hash, false).setSolved(1);
+        IState state = tt.getState(5, false);
+        update(state, 1, 3);
+        equal(1, tt.rejected, "Rejected positions");
+        equal(3, state.getVisits(), "Visits of the rejected position");
+        equal(1., state.getMean(1), "Mean of the rejected position");
+        check(tt.getState(5, true) == null, "Rejected position was stored");
+    }
+
+    /**
+     * A table sized from a memory budget uses at most the budget, and at least half of it
+     */
+    private static void fitsBudget() {
+        for (long bytes : new long[]{1 << 20, 3 << 20, (1L << 30) + 1}) {
+            long positions = OpenTransposTable.positionsFor(bytes);
+            check(positions * 4 * Long.BYTES <= bytes, positions + " positions exceed " + bytes + " bytes");
+            check(positions * 4 * Long.BYTES * 2 > bytes, positions + " positions leave half of " + bytes + " bytes");
+        }
+    }
+}
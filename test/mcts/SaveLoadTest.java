@@ -0,0 +1,115 @@
+package mcts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class SaveLoadTest {
+    private static final int POSITIONS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("tt", ".bin");
+        try {
+            savesAfterPack(new TransposTable(), file);
+            savesAfterPack(new ConcurrentTransposTable(), file);
+            savesAfterPack(new OpenTransposTable(1 << 10), file);
+            savesLatestEntry(file);
+            writesPositionsOnly(file);
+            loadsIntoTableSize(file);
+            keepsLoadedPositions(file);
+        } finally {
+            Files.delete(file);
+        }
+        System.out.println("SaveLoadTest passed");
+    }
+
+    private static OpenTransposTable load(Path file) throws IOException {
+        OpenTransposTable loaded = new OpenTransposTable(1 << 12);
+        loaded.load(file);
+        return loaded;
+    }
+
+    private static void fill(ITransposTable tt) {
+        for (long hash = 1; hash <= POSITIONS; hash++) {
+            IState state = tt.getState(hash, false);
+            state.updateStats(new double[]{1, -1}, (int) hash, false, false);
+            state.setImValue(.25, 1);
+        }
+        tt.getState(POSITIONS + 1, false).setSolved(2);
+    }
+
+    /**
+     * The table is packed after every move, so all positions are stale when the game is over
+     */
+    private static void savesAfterPack(ITransposTable tt, Path file) throws IOException {
+        fill(tt);
+        tt.pack(0);
+        tt.save(file);
+        OpenTransposTable loaded = load(file);
+        equal(POSITIONS + 1, loaded.getPositions(), "Positions loaded");
+        for (long hash = 1; hash <= POSITIONS; hash++) {
+            IState state = loaded.getState(hash, true);
+            check(state != null, "Position " + hash + " not loaded");
+            equal(hash, state.getVisits(), "Visits");
+            equal(1. / hash, state.getMean(1), "Mean");
+            equal(.25, state.getImValue(1), "Implicit minimax value");
+        }
+        check(loaded.getState(POSITIONS + 1, true).isSolved(), "Proof not loaded");
+    }
+
+    private static void savesLatestEntry(Path file) throws IOException {
+        OpenTransposTable tt = new OpenTransposTable(1 << 10);
+        tt.getState(1, false).updateStats(new double[]{1, -1}, 1, false, false);
+        tt.pack(0);
+        // The stale position is added again
+        tt.getState(1, false).updateStats(new double[]{-1, 1}, 2, false, false);
+        tt.save(file);
+        OpenTransposTable loaded = load(file);
+        equal(1, loaded.getPositions(), "Positions loaded");
+        equal(2, loaded.getState(1, true).getVisits(), "Visits of the latest entry");
+    }
+
+    /**
+     * The file holds the positions only, whatever the capacity of the table
+     */
+    private static void writesPositionsOnly(Path file) throws IOException {
+        OpenTransposTable tt = new OpenTransposTable(1 << 20);
+        fill(tt);
+        tt.save(file);
+        equal((2 + (POSITIONS + 1) * 4L) * Long.BYTES, Files.size(file), "Size of the file");
+    }
+
+    /**
+     * The table loaded into keeps its own size, the positions that do not fit replace others
+     */
+    private static void loadsIntoTableSize(Path file) throws IOException {
+        OpenTransposTable tt = new OpenTransposTable(1 << 12);
+        fill(tt);
+        tt.save(file);
+        OpenTransposTable small = new OpenTransposTable(1 << 6);
+        small.load(file);
+        check(small.getPositions() == 1 << 6, "Positions in a table of 64: " + small.getPositions());
+        equal(1., small.getFillRate(), "Fill rate");
+    }
+
+    /**
+     * Loaded positions are not stale after the first moves, positions added by the search are
+     */
+    private static void keepsLoadedPositions(Path file) throws IOException {
+        OpenTransposTable tt = new OpenTransposTable(1 << 12);
+        fill(tt);
+        tt.save(file);
+        OpenTransposTable loaded = load(file);
+        loaded.getState(2 * POSITIONS, false).updateStats(new double[]{1, -1}, 1, false, false);
+        loaded.pack(0);
+        loaded.pack(0);
+        check(loaded.getState(2 * POSITIONS, true) == null, "Searched position not stale");
+        for (long hash = 1; hash <= POSITIONS; hash++)
+            equal(hash, loaded.getState(hash, true).getVisits(), "Visits of a loaded position after pack");
+        check(loaded.getState(POSITIONS + 1, true).isSolved(), "Proof lost after pack");
+    }
+}
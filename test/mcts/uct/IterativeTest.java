@@ -0,0 +1,52 @@
+package mcts.uct;
+
+import framework.Boards;
+import framework.IBoard;
+import framework.Options;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static framework.Check.check;
+
+public class IterativeTest {
+    private static final String[] GAMES = {"amazons", "atarigo", "breakthrough", "gomoku", "hex"};
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        for (IBoard board : Boards.all()) {
+            String game = board.getClass().getPackage().getName().split("\\.")[0];
+            if (!Arrays.asList(GAMES).contains(game))
+                continue;
+            // A position in the middle of the game
+            for (int i = 0; i < 10; i++)
+                board.doMove(Boards.randomMove(board, random));
+            searchesAlike(game, board);
+        }
+        System.out.println("IterativeTest passed");
+    }
+
+    private static SearchSnapshot search(String game, IBoard board, boolean iterative) {
+        Options.setSeed(1);
+        Options options = new Options();
+        options.setGame(game);
+        options.fixedSimulations = true;
+        options.nSimulations = 2000;
+        options.iterative = iterative;
+        UCTPlayer player = new UCTPlayer();
+        player.setOptions(options);
+        player.getMove(board.clone());
+        return player.getSnapshot();
+    }
+
+    /**
+     * With the same random numbers, descending the tree in a loop must build the same tree as recursing
+     */
+    private static void searchesAlike(String game, IBoard board) {
+        SearchSnapshot recursive = search(game, board, false), iterative = search(game, board, true);
+        check(Arrays.equals(recursive.bestMove, iterative.bestMove), game + " best move differs");
+        check(Arrays.deepEquals(recursive.moves, iterative.moves), game + " moves differ");
+        check(Arrays.equals(recursive.visits, iterative.visits), game + " visits differ: "
+                + Arrays.toString(recursive.visits) + " and " + Arrays.toString(iterative.visits));
+    }
+}
@@ -0,0 +1,42 @@
+package mcts.uct;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class LeafParallelTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        countsSamples();
+        runsWithTreeParallel();
+        System.out.println("LeafParallelTest passed");
+    }
+
+    /**
+     * Every sample of a leaf is a playout, and is counted as a visit
+     */
+    private static void countsSamples() {
+        SearchSnapshot snapshot = Searches.search(4000, o -> {
+            o.nThreads = 2;
+            o.leafParallel = true;
+            o.nSamples = 4;
+        });
+        equal(4000, snapshot.playouts, "Playouts");
+        equal(4000, Searches.sum(snapshot.visits), "Visits of the samples");
+    }
+
+    /**
+     * The tree parallel threads wait for their samples, which must not need the same threads
+     */
+    private static void runsWithTreeParallel() throws InterruptedException {
+        Thread search = new Thread(() -> Searches.search(2000, o -> {
+            o.nThreads = 2;
+            o.treeParallel = true;
+            o.leafParallel = true;
+            o.nSamples = 2;
+        }));
+        search.setDaemon(true);
+        search.start();
+        search.join(60000);
+        check(!search.isAlive(), "Tree and leaf parallel search did not finish");
+    }
+}
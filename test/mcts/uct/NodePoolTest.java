@@ -0,0 +1,49 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import java.util.Arrays;
+
+import static framework.Check.check;
+
+public class NodePoolTest {
+
+    public static void main(String[] args) {
+        // Trees of these games hold no transpositions after a short search, which the pool does not share
+        searchesAlike("amazons", new amazons.game.Board());
+        searchesAlike("gomoku", new gomoku.game.Board(9));
+        searchesAlike("hex", new hex.game.Board(11));
+        rejectsOptions();
+        System.out.println("NodePoolTest passed");
+    }
+
+    private static SearchSnapshot search(String game, IBoard board, boolean nodePool) {
+        Options.setSeed(1);
+        UCTPlayer player = Searches.player(game, 2000, o -> o.nodePool = nodePool);
+        player.getMove(board.clone());
+        return player.getSnapshot();
+    }
+
+    /**
+     * With the same random numbers, the pool must build the same tree as UCTNode objects
+     */
+    private static void searchesAlike(String game, IBoard board) {
+        board.initialize();
+        SearchSnapshot nodes = search(game, board, false), pool = search(game, board, true);
+        check(Arrays.equals(nodes.bestMove, pool.bestMove), game + " best move differs");
+        check(Arrays.equals(nodes.visits, pool.visits), game + " visits differ");
+    }
+
+    private static void rejectsOptions() {
+        try {
+            Searches.player("breakthrough", 100, o -> {
+                o.nodePool = true;
+                o.nThreads = 2;
+            });
+            check(false, "Parallel pool search accepted");
+        } catch (RuntimeException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import static framework.Check.check;
+
+public class PonderTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        int reused = reusedVisits(false), pondered = reusedVisits(true);
+        check(pondered > reused, "Pondering added no visits: " + pondered + " against " + reused);
+        System.out.println("PonderTest passed");
+    }
+
+    private static Thread ponderThread() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("uct-ponder") && thread.isAlive())
+                return thread;
+        }
+        return null;
+    }
+
+    /**
+     * Searches a move, lets the opponent reply and searches again
+     *
+     * @return The visits carried over to the second search
+     */
+    private static int reusedVisits(boolean ponder) throws InterruptedException {
+        Options.setSeed(1);
+        UCTPlayer player = Searches.player("breakthrough", 500, o -> {
+            o.reuseTree = true;
+            o.ponder = ponder;
+            o.ponderSimulations = 5000;
+        });
+        UCTPlayer opponent = Searches.player("breakthrough", 500, o -> {
+        });
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        player.getMove(board.clone());
+        board.doMove(player.getBestMove());
+        Thread thread = ponderThread();
+        check(ponder == (thread != null), "Pondering " + ponder + ", ponder thread " + thread);
+        if (thread != null) {
+            // Pondering stops by itself after ponderSimulations playouts
+            thread.join(60000);
+            check(!thread.isAlive(), "Pondering did not stop");
+        }
+        opponent.getMove(board.clone());
+        board.doMove(opponent.getBestMove());
+        player.getMove(board.clone());
+        SearchSnapshot snapshot = player.getSnapshot();
+        // At the end of the game
+        player.stopPondering();
+        check(ponderThread() == null, "Pondering not stopped");
+        return Searches.sum(snapshot.visits) - snapshot.playouts;
+    }
+}
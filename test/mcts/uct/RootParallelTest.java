@@ -0,0 +1,31 @@
+package mcts.uct;
+
+import java.util.Arrays;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class RootParallelTest {
+
+    public static void main(String[] args) {
+        mergesTrees();
+        System.out.println("RootParallelTest passed");
+    }
+
+    /**
+     * Every thread searches a tree of its own with a stream of its own, the visits of the trees are summed
+     */
+    private static void mergesTrees() {
+        SearchSnapshot snapshot = Searches.search(3000, o -> o.nThreads = 3);
+        equal(3000, snapshot.playouts, "Playouts of all threads");
+        equal(3000, Searches.sum(snapshot.visits), "Visits of the merged trees");
+        int best = 0;
+        for (int i = 0; i < snapshot.moves.length; i++) {
+            if (snapshot.visits[i] > snapshot.visits[best])
+                best = i;
+        }
+        check(Arrays.equals(snapshot.moves[best], snapshot.bestMove), "Best move is not the most visited");
+        SearchSnapshot again = Searches.search(3000, o -> o.nThreads = 3);
+        check(Arrays.equals(snapshot.visits, again.visits), "Search with the same seed differs");
+    }
+}
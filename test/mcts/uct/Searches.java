@@ -0,0 +1,47 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import java.util.function.Consumer;
+
+/**
+ * Searches with fixed seeds for the tests
+ */
+final class Searches {
+    private Searches() {
+    }
+
+    /**
+     * @param settings Changes the options of the game, which search a fixed number of simulations
+     */
+    static UCTPlayer player(String game, int simulations, Consumer<Options> settings) {
+        Options options = new Options();
+        options.setGame(game);
+        options.fixedSimulations = true;
+        options.nSimulations = simulations;
+        settings.accept(options);
+        UCTPlayer player = new UCTPlayer();
+        player.setOptions(options);
+        return player;
+    }
+
+    /**
+     * Searches the starting position of Breakthrough, with seed 1
+     */
+    static SearchSnapshot search(int simulations, Consumer<Options> settings) {
+        Options.setSeed(1);
+        UCTPlayer player = player("breakthrough", simulations, settings);
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        player.getMove(board);
+        return player.getSnapshot();
+    }
+
+    static int sum(int[] visits) {
+        int sum = 0;
+        for (int v : visits)
+            sum += v;
+        return sum;
+    }
+}
@@ -0,0 +1,51 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static framework.Check.check;
+
+public class SnapshotTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        countsAllThreads(o -> o.nThreads = 4);
+        countsAllThreads(o -> {
+            o.nThreads = 4;
+            o.treeParallel = true;
+        });
+        System.out.println("SnapshotTest passed");
+    }
+
+    /**
+     * The snapshots published while searching count the playouts and visits of all threads
+     */
+    private static void countsAllThreads(Consumer<Options> settings) throws InterruptedException {
+        Options.setSeed(1);
+        UCTPlayer player = Searches.player("breakthrough", 20000, o -> {
+            settings.accept(o);
+            o.snapshotInterval = 200;
+        });
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        Thread search = new Thread(() -> player.getMove(board));
+        search.start();
+        List<SearchSnapshot> snapshots = new ArrayList<>();
+        while (search.isAlive()) {
+            SearchSnapshot snapshot = player.getSnapshot();
+            if (snapshot != null && (snapshots.isEmpty() || snapshots.get(snapshots.size() - 1) != snapshot))
+                snapshots.add(snapshot);
+        }
+        search.join();
+        check(snapshots.size() > 2, "Too few snapshots: " + snapshots.size());
+        for (SearchSnapshot snapshot : snapshots) {
+            int visits = Searches.sum(snapshot.visits);
+            // Threads go on searching while a snapshot is made
+            check(snapshot.playouts * 2 > visits && visits * 2 > snapshot.playouts,
+                    snapshot.playouts + " playouts for " + visits + " visits");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import static framework.Check.check;
+
+public class TimeManagerTest {
+
+    public static void main(String[] args) {
+        resetsGameClock();
+        stopsRootParallelThreads();
+        System.out.println("TimeManagerTest passed");
+    }
+
+    private static String budget(TimeManager timeManager) {
+        String str = timeManager.toString();
+        return str.substring(0, str.indexOf(" ms"));
+    }
+
+    /**
+     * The second game gets the same time as the first
+     */
+    private static void resetsGameClock() {
+        Options options = new Options();
+        options.gameTime = 40000;
+        TimeManager timeManager = new TimeManager(options);
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        timeManager.startMove(board);
+        String first = budget(timeManager);
+        for (int i = 0; i < 5; i++) {
+            timeManager.endMove();
+            timeManager.startMove(board);
+        }
+        check(!first.equals(budget(timeManager)), "Budget of the first move given again");
+        timeManager.endMove();
+        timeManager.reset();
+        timeManager.startMove(board);
+        check(first.equals(budget(timeManager)), "New game got " + budget(timeManager) + " instead of " + first);
+    }
+
+    /**
+     * The threads of a root parallel search stop together, within the time of the move
+     */
+    private static void stopsRootParallelThreads() {
+        Options.setSeed(1);
+        Options options = new Options();
+        options.setGame("breakthrough");
+        options.nSimulations = 300; // Milliseconds per move
+        options.nThreads = 4;
+        UCTPlayer player = new UCTPlayer();
+        player.setOptions(options);
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        long start = System.currentTimeMillis();
+        player.getMove(board);
+        long elapsed = System.currentTimeMillis() - start;
+        check(elapsed < 1000, "Search of 300 ms took " + elapsed + " ms");
+        check(player.getSnapshot().playouts > 0, "No playouts");
+    }
+}
@@ -0,0 +1,54 @@
+package mcts.uct;
+
+import framework.Options;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static framework.Check.check;
+import static framework.Check.equal;
+
+public class TreeParallelTest {
+
+    public static void main(String[] args) {
+        countsEveryPlayout();
+        rejectsPrimitiveTable();
+        System.out.println("TreeParallelTest passed");
+    }
+
+    /**
+     * The threads share the tree and the table, no update may be lost when they update the same nodes
+     */
+    private static void countsEveryPlayout() {
+        for (int run = 0; run < 3; run++) {
+            SearchSnapshot snapshot = Searches.search(4000, o -> {
+                o.nThreads = 4;
+                o.treeParallel = true;
+            });
+            equal(4000, snapshot.playouts, "Playouts of all threads");
+            equal(4000, Searches.sum(snapshot.visits), "Visits of the shared tree");
+        }
+    }
+
+    /**
+     * The shared table is not bounded by a memory budget and cannot load a saved table, so these are rejected instead
+     * of ignored
+     */
+    private static void rejectsPrimitiveTable() {
+        List<Consumer<Options>> settings = Arrays.asList(o -> o.ttBytes = 1 << 20, o -> o.ttFile = "tt.bin");
+        for (Consumer<Options> setting : settings) {
+            boolean rejected = false;
+            try {
+                Searches.player("breakthrough", 100, o -> {
+                    o.nThreads = 4;
+                    o.treeParallel = true;
+                    setting.accept(o);
+                });
+            } catch (RuntimeException e) {
+                rejected = true;
+            }
+            check(rejected, "Primitive table option accepted with treeParallel");
+        }
+    }
+}
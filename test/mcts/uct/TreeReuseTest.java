@@ -0,0 +1,50 @@
+package mcts.uct;
+
+import framework.IBoard;
+import framework.Options;
+
+import static framework.Check.check;
+
+public class TreeReuseTest {
+
+    public static void main(String[] args) {
+        keepsVisits(false);
+        keepsVisits(true);
+        System.out.println("TreeReuseTest passed");
+    }
+
+    private static UCTPlayer player(boolean reuse, boolean openTT) {
+        Options options = new Options();
+        options.setGame("breakthrough");
+        options.fixedSimulations = true;
+        options.nSimulations = 2000;
+        options.reuseTree = reuse;
+        options.openTT = openTT;
+        options.ttSize = 1 << 16;
+        UCTPlayer player = new UCTPlayer();
+        player.setOptions(options);
+        return player;
+    }
+
+    /**
+     * The tables are packed after every move, the reused subtree must keep its visits in the new generation
+     */
+    private static void keepsVisits(boolean openTT) {
+        Options.setSeed(1);
+        UCTPlayer player = player(true, openTT), opponent = player(false, false);
+        IBoard board = new breakthrough.game.Board();
+        board.initialize();
+        for (int move = 0; move < 3; move++) {
+            player.getMove(board.clone());
+            SearchSnapshot snapshot = player.getSnapshot();
+            int visits = 0;
+            for (int v : snapshot.visits)
+                visits += v;
+            if (move > 0)
+                check(visits > snapshot.playouts, "Visits of the reused tree lost, table " + (openTT ? "open" : "chained"));
+            board.doMove(player.getBestMove());
+            opponent.getMove(board.clone());
+            board.doMove(opponent.getBestMove());
+        }
+    }
+}